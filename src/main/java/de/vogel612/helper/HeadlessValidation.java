@@ -0,0 +1,232 @@
+package de.vogel612.helper;
+
+import de.vogel612.helper.data.FilesetValidator;
+import de.vogel612.helper.data.NotableData.Notability;
+import de.vogel612.helper.data.Project;
+import de.vogel612.helper.data.ResourceSet;
+import de.vogel612.helper.data.Translation;
+import de.vogel612.helper.data.ValidationFinding;
+import de.vogel612.helper.data.ValidationReport;
+import de.vogel612.helper.data.util.DirectoryIndex;
+import de.vogel612.helper.data.util.ProjectSerializer;
+import de.vogel612.helper.data.util.ReportSerializer;
+import de.vogel612.helper.data.util.ResourceFileSerializer;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static de.vogel612.helper.data.util.DataUtilities.FALLBACK_LOCALE;
+import static de.vogel612.helper.data.util.DataUtilities.fileNameString;
+
+/**
+ * Validates every resource set of a project without any user interface, e.g. on a build server without a display.
+ * The findings are written as JSON or SARIF and the exit code tells whether the project passed:
+ * <ul>
+ * <li>{@value #EXIT_CLEAN}: nothing at or above the failing severity was found</li>
+ * <li>{@value #EXIT_FINDINGS}: at least one translation at or above the failing severity was found</li>
+ * <li>{@value #EXIT_FAILURE}: the arguments were wrong or the project could not be read</li>
+ * </ul>
+ * Nothing of JavaFX is started and no files are written except the report. Resource sets, and the locales of every
+ * set, are read and validated in parallel.
+ */
+public final class HeadlessValidation {
+
+    static final int EXIT_CLEAN = 0;
+    static final int EXIT_FINDINGS = 1;
+    static final int EXIT_FAILURE = 2;
+    static final String USAGE = "Usage: HeadlessValidation <project.thp> [--format json|sarif] [--output <file>]"
+            + " [--fail-on error|warning|info]";
+
+    private static final Notability[] REPORTED = {Notability.ERROR, Notability.WARNING, Notability.INFO};
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private HeadlessValidation() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs a validation as given by the command line arguments.
+     *
+     * @param args
+     *         The command line arguments, see {@link #USAGE}
+     * @param out
+     *         Where to write the report to unless an output file is given
+     * @param err
+     *         Where to write usage and error messages to
+     *
+     * @return The exit code of the validation
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Path projectFile = null;
+        String format = "json";
+        Path output = null;
+        Notability failOn = Notability.ERROR;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = valueOf(args, ++i).toLowerCase(Locale.ROOT);
+                        if (!format.equals("json") && !format.equals("sarif")) {
+                            throw new IllegalArgumentException("Unknown format " + format);
+                        }
+                        break;
+                    case "--output":
+                        output = Paths.get(valueOf(args, ++i));
+                        break;
+                    case "--fail-on":
+                        failOn = Notability.valueOf(valueOf(args, ++i).toUpperCase(Locale.ROOT));
+                        if (failOn == Notability.DEFAULT) {
+                            throw new IllegalArgumentException("Cannot fail on " + args[i]);
+                        }
+                        break;
+                    default:
+                        if (projectFile != null || args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                        }
+                        // relative to the working directory, the project file needs a parent folder
+                        projectFile = Paths.get(args[i]).toAbsolutePath();
+                }
+            }
+            if (projectFile == null) {
+                throw new IllegalArgumentException("No project given");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_FAILURE;
+        }
+
+        final List<ValidationFinding> findings;
+        final Project project;
+        try {
+            project = ProjectSerializer.deserialize(projectFile);
+            if (project.getAssociatedResources().isEmpty()) {
+                // also what an unreadable project file deserializes to, which must not pass silently
+                err.println(projectFile + " declares no resource sets");
+                return EXIT_FAILURE;
+            }
+            findings = validate(project.getAssociatedResources(), new FilesetValidator());
+        } catch (IOException | UncheckedIOException e) {
+            err.println("Could not validate " + projectFile + ": " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+
+        final Path base = projectFile.getParent();
+        try (Writer writer = output == null
+                ? new BufferedWriter(new OutputStreamWriter(new FilterOutputStream(out) {
+                    @Override
+                    public void close() throws IOException {
+                        // flush, but keep the stream open for the caller
+                        flush();
+                    }
+                }, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (format.equals("sarif")) {
+                ReportSerializer.writeSarif(findings, base, writer);
+            } else {
+                ReportSerializer.writeJson(project.getName(), findings, base, writer);
+            }
+        } catch (IOException e) {
+            err.println("Could not write the report: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        final Notability threshold = failOn;
+        return findings.stream().anyMatch(finding -> finding.getSeverity().compareTo(threshold) >= 0)
+                ? EXIT_FINDINGS
+                : EXIT_CLEAN;
+    }
+
+    private static String valueOf(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * Validates the given resource sets in parallel.
+     *
+     * @return The findings of all sets, in the order of the sets
+     *
+     * @throws UncheckedIOException
+     *         In case a set cannot be read
+     */
+    static List<ValidationFinding> validate(List<ResourceSet> sets, FilesetValidator validator) {
+        return sets.parallelStream()
+                .map(set -> validate(set, validator))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Validates every declared locale of a set against its fallback locale. Keys missing in a locale are validated as
+     * empty translations, since nobody translated them yet; keys missing in the fallback are ignored.
+     */
+    private static List<ValidationFinding> validate(ResourceSet set, FilesetValidator validator) {
+        final Path folder = set.getFolder();
+        final Map<String, Path> files;
+        try {
+            files = DirectoryIndex.of(folder).getFileset(set.getName());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!files.containsKey(FALLBACK_LOCALE)) {
+            throw new UncheckedIOException(new NoSuchFileException(
+                    folder.resolve(fileNameString(set.getName(), FALLBACK_LOCALE)).toString()));
+        }
+        final Map<String, Map<String, String>> entries = new ConcurrentHashMap<>();
+        set.getLocales().parallelStream().forEach(locale -> entries.put(locale, read(files.get(locale))));
+
+        final Map<String, String> fallbackEntries = new TreeMap<>(entries.remove(FALLBACK_LOCALE));
+        final List<Translation> fallback = new ArrayList<>(fallbackEntries.size());
+        fallbackEntries.forEach((key, value) -> fallback.add(new Translation(FALLBACK_LOCALE, key, value)));
+        final Map<String, List<Translation>> locales = new HashMap<>();
+        entries.forEach((locale, values) -> locales.put(locale, fallbackEntries.keySet().stream()
+                .map(key -> new Translation(locale, key, values.get(key)))
+                .collect(Collectors.toList())));
+        final ValidationReport report = validator.validate(fallback, locales);
+
+        final List<ValidationFinding> findings = new ArrayList<>();
+        for (String locale : report.getLocales()) {
+            final Path file = files.getOrDefault(locale, folder.resolve(fileNameString(set.getName(), locale)));
+            final Map<String, String> values = entries.get(locale);
+            for (Notability severity : REPORTED) {
+                for (String key : report.getKeys(locale, severity)) {
+                    final String original = fallbackEntries.get(key);
+                    final String translation = values.get(key);
+                    final List<String> rules = ValidationFinding.rulesAssessing(original, translation, severity);
+                    findings.add(new ValidationFinding(set.getName(), file, locale, key, severity, rules,
+                            ValidationFinding.argumentsAssessed(original, translation, rules)));
+                }
+            }
+        }
+        return findings;
+    }
+
+    /**
+     * @return The keys and values of the given file, empty if there is no file
+     */
+    private static Map<String, String> read(Path file) {
+        if (file == null) {
+            return Collections.emptyMap();
+        }
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            return ResourceFileSerializer.deserializeToMap(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (XMLStreamException e) {
+            throw new UncheckedIOException(new IOException(file + " is not a well-formed resx file", e));
+        }
+    }
+}
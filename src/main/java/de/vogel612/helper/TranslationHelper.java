@@ -1,6 +1,9 @@
 package de.vogel612.helper;
 
 import de.vogel612.helper.data.FilesetModel;
+import de.vogel612.helper.data.SaveMode;
+import de.vogel612.helper.data.util.EditJournal;
+import de.vogel612.helper.data.util.SnapshotCache;
 import de.vogel612.helper.ui.*;
 import de.vogel612.helper.ui.jfx.*;
 
@@ -16,6 +19,8 @@ import javafx.stage.StageStyle;
 public class TranslationHelper extends Application {
 
     static final String ARGUMENT_MISMATCH = "Arguments do not match up. Please provide no more than a Path to the intended fileset";
+    static final Path SNAPSHOT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".translationhelper", "snapshots");
+    static final Path JOURNAL_DIRECTORY = Paths.get(System.getProperty("user.home"), ".translationhelper", "journal");
 
 
     public static void main(String[] args) {
@@ -43,7 +48,15 @@ public class TranslationHelper extends Application {
         TranslationView tv = prepareTranslationView(overviewStage);
         LocaleChooser rc = prepareLocaleChooser(overviewStage);
 
-        OverviewView v = new JFXTranslationOverviewView(rc, new FilesetModel(), tv, overviewStage, getClass().getResource("/TranslationOverviewView.fxml"));
+        FilesetModel model = new FilesetModel();
+        model.setSnapshotCache(new SnapshotCache(SNAPSHOT_DIRECTORY, false));
+        model.setEditJournal(new EditJournal(JOURNAL_DIRECTORY));
+        model.setLoadOnDemand(true);
+        // keep saved resx files diff-friendly, only changed values are written
+        model.setSaveMode(SaveMode.PRESERVE_FORMATTING);
+        model.startWatching(Platform::runLater);
+
+        OverviewView v = new JFXTranslationOverviewView(rc, model, tv, overviewStage, getClass().getResource("/TranslationOverviewView.fxml"));
         ProjectView pv = new JFXProjectView(primaryStage, getClass().getResource("/ProjectOverview.fxml"));
         OverviewPresenter p = new OverviewPresenter(v, pv);
 
@@ -0,0 +1,116 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+
+/**
+ * The validation rules that are always available.
+ */
+public enum BuiltInRule implements ValidationRule {
+    /**
+     * The format items of both values differ, see {@link FormatItems}
+     */
+    FORMAT_SPECIFIERS {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            final long needsComparison = FormatItems.NEEDS_COMPARISON;
+            final long left = original.getFormatSummary();
+            final long right = translation.getFormatSummary();
+            if ((left & ~needsComparison) != (right & ~needsComparison)) {
+                return Notability.ERROR;
+            }
+            if (((left | right) & needsComparison) != 0
+                    && !FormatItems.haveSameItems(original.getValue(), translation.getValue())) {
+                return Notability.ERROR;
+            }
+            return Notability.DEFAULT;
+        }
+    },
+    /**
+     * Any of the values is empty
+     */
+    EMPTY_VALUE {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            return original.getLength() == 0 || translation.getLength() == 0 ? Notability.WARNING : Notability.DEFAULT;
+        }
+    },
+    /**
+     * Both values are the same, so the value was probably not translated
+     */
+    IDENTICAL_VALUE {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            return original.getValue().equals(translation.getValue()) ? Notability.WARNING : Notability.DEFAULT;
+        }
+    },
+    /**
+     * The translation has tags that are not closed in order although the original has none, or the values have
+     * different tags
+     */
+    TAG_BALANCE {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            if (original.areTagsBalanced() && !translation.areTagsBalanced()) {
+                return Notability.ERROR;
+            }
+            return original.getTags() != translation.getTags() || original.getTagSignature() != translation.getTagSignature()
+                    ? Notability.WARNING
+                    : Notability.DEFAULT;
+        }
+    },
+    /**
+     * Only one of the values starts or ends with whitespace
+     */
+    WHITESPACE_DRIFT {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            if (original.getLength() == 0 || translation.getLength() == 0) {
+                return Notability.DEFAULT;
+            }
+            return (original.getLeadingWhitespace() > 0) != (translation.getLeadingWhitespace() > 0)
+                    || (original.getTrailingWhitespace() > 0) != (translation.getTrailingWhitespace() > 0)
+                    ? Notability.WARNING
+                    : Notability.DEFAULT;
+        }
+    },
+    /**
+     * The values have a different number of <tt>&amp;</tt> accelerator keys
+     */
+    ACCELERATOR_KEYS {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            return original.getAccelerators() != translation.getAccelerators() ? Notability.WARNING : Notability.DEFAULT;
+        }
+    },
+    /**
+     * The values have a different number of lines
+     */
+    NEWLINE_COUNT {
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            return original.getNewlines() != translation.getNewlines() ? Notability.WARNING : Notability.DEFAULT;
+        }
+    },
+    /**
+     * The translation is less than a third or more than three times as long as an original of some length
+     */
+    LENGTH_RATIO {
+        private static final int MINIMUM_LENGTH = 10;
+        private static final int MAXIMUM_RATIO = 3;
+
+        @Override
+        public Notability assess(ValueProfile original, ValueProfile translation) {
+            final int left = original.getLength();
+            final int right = translation.getLength();
+            if (left < MINIMUM_LENGTH || right == 0) {
+                return Notability.DEFAULT;
+            }
+            return right > left * MAXIMUM_RATIO || right * MAXIMUM_RATIO < left ? Notability.INFO : Notability.DEFAULT;
+        }
+    };
+
+    @Override
+    public String getName() {
+        return name();
+    }
+}
@@ -0,0 +1,144 @@
+package de.vogel612.helper.data;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The undo and redo history of the edits of a fileset. Only the changed translations are recorded, never copies of
+ * files or documents. Every entry is a group of changes that is undone and redone as a whole, e.g. all translations
+ * pasted at once.
+ * <p>
+ * The history is not thread-safe, {@link FilesetModel} only accesses it under its lock.
+ */
+final class EditHistory {
+
+    /**
+     * A group of changes, stored as parallel arrays. Locales and keys are the instances used by the model, so they
+     * take no additional space.
+     */
+    static final class Group {
+        private final String[] locales;
+        private final String[] keys;
+        private final String[] oldValues;
+        private final String[] newValues;
+        private final long heapSize;
+
+        private Group(List<TranslationChangeEvent.Change> changes) {
+            final int size = changes.size();
+            locales = new String[size];
+            keys = new String[size];
+            oldValues = new String[size];
+            newValues = new String[size];
+            long values = 0;
+            for (int i = 0; i < size; i++) {
+                final TranslationChangeEvent.Change change = changes.get(i);
+                locales[i] = change.getLocale();
+                keys[i] = change.getKey();
+                oldValues[i] = change.getOldValue();
+                newValues[i] = change.getNewValue();
+                values += estimateHeapSize(oldValues[i]) + estimateHeapSize(newValues[i]);
+            }
+            heapSize = 32 + 4 * (16 + 8L * size) + values;
+        }
+
+        private static long estimateHeapSize(String value) {
+            return value == null ? 0 : 40 + 2L * value.length();
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        String getLocale(int index) {
+            return locales[index];
+        }
+
+        String getKey(int index) {
+            return keys[index];
+        }
+
+        String getOldValue(int index) {
+            return oldValues[index];
+        }
+
+        String getNewValue(int index) {
+            return newValues[index];
+        }
+    }
+
+    private final Deque<Group> undoable = new ArrayDeque<>();
+    private final Deque<Group> redoable = new ArrayDeque<>();
+    private long heapSize;
+
+    /**
+     * Records a group of changes that were just made. Everything that could be redone is dropped, then the oldest
+     * groups are dropped until the history fits into the given size again.
+     *
+     * @param changes
+     *         The changes, in the order they were made. Nothing is recorded if there are none
+     * @param maxHeapSize
+     *         The maximum estimated heap size of the whole history in bytes
+     */
+    void record(List<TranslationChangeEvent.Change> changes, long maxHeapSize) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        redoable.forEach(group -> heapSize -= group.heapSize);
+        redoable.clear();
+        final Group group = new Group(changes);
+        undoable.push(group);
+        heapSize += group.heapSize;
+        trim(maxHeapSize);
+    }
+
+    /**
+     * Drops the oldest groups until the history fits into the given size. Groups that can be redone are dropped last.
+     */
+    void trim(long maxHeapSize) {
+        while (heapSize > maxHeapSize && !undoable.isEmpty()) {
+            heapSize -= undoable.removeLast().heapSize;
+        }
+        while (heapSize > maxHeapSize && !redoable.isEmpty()) {
+            heapSize -= redoable.removeLast().heapSize;
+        }
+    }
+
+    /**
+     * @return The most recent group of changes, <tt>null</tt> if there is nothing to undo. The group can be redone
+     * afterwards
+     */
+    Group undo() {
+        final Group group = undoable.poll();
+        if (group != null) {
+            redoable.push(group);
+        }
+        return group;
+    }
+
+    /**
+     * @return The most recently undone group of changes, <tt>null</tt> if there is nothing to redo
+     */
+    Group redo() {
+        final Group group = redoable.poll();
+        if (group != null) {
+            undoable.push(group);
+        }
+        return group;
+    }
+
+    boolean canUndo() {
+        return !undoable.isEmpty();
+    }
+
+    boolean canRedo() {
+        return !redoable.isEmpty();
+    }
+
+    /**
+     * @return A rough estimate of the heap used by this history in bytes
+     */
+    long estimateHeapSize() {
+        return heapSize;
+    }
+}
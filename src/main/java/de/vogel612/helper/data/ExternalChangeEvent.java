@@ -0,0 +1,39 @@
+package de.vogel612.helper.data;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Signals that a locale of the current fileset was changed on disk by someone else and merged into the model.
+ */
+public class ExternalChangeEvent {
+    private final String locale;
+    private final Set<String> changedKeys;
+    private final Set<String> conflictingKeys;
+
+    public ExternalChangeEvent(final String locale, final Set<String> changedKeys, final Set<String> conflictingKeys) {
+        this.locale = locale;
+        this.changedKeys = Collections.unmodifiableSet(new LinkedHashSet<>(changedKeys));
+        this.conflictingKeys = Collections.unmodifiableSet(new LinkedHashSet<>(conflictingKeys));
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return The keys whose translation in the model changed because of the merge, including added and removed keys
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    /**
+     * @return The keys that were changed on disk while they had unsaved changes in the model. The unsaved changes are
+     * kept and overwrite the changes on disk when saving
+     */
+    public Set<String> getConflictingKeys() {
+        return conflictingKeys;
+    }
+}
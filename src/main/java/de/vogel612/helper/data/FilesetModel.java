@@ -3,26 +3,117 @@ package de.vogel612.helper.data;
 import static de.vogel612.helper.data.util.DataUtilities.*;
 
 import de.vogel612.helper.data.util.DataUtilities;
+import de.vogel612.helper.data.util.DirectoryIndex;
+import de.vogel612.helper.data.util.EditJournal;
+import de.vogel612.helper.data.util.SnapshotCache;
+import de.vogel612.helper.data.util.WriteTiming;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
  * Model for a "single fileset". Provides in-memory caching, parsing and writing of resx files belonging to one
  * "current" fileset classification, especially across Locales.
+ * <p>
+ * The model can be loaded, edited and saved from different threads. A load only becomes visible once the whole
+ * fileset was parsed, so readers never see a partially loaded fileset.
+ * </p>
  */
 public class FilesetModel {
     private final Set<Runnable> parseCompletionListeners = new HashSet<>();
-    private final Map<String, ResourceFile> resources = new HashMap<>();
+    private final Set<BiConsumer<Path, Throwable>> parseFailureListeners = new HashSet<>();
+    private final Set<Consumer<ExternalChangeEvent>> externalChangeListeners = new HashSet<>();
+    private final Set<Consumer<TranslationChangeEvent>> translationChangeListeners = new HashSet<>();
+    /**
+     * Guards the content of the resource files. Edits, merges and saves hold the write lock, readers the read lock.
+     * The lock is not reentrant, so listeners are only ever notified after it was released.
+     */
+    private final StampedLock lock = new StampedLock();
+    /**
+     * Held for a whole {@link #saveAll()}, so that {@link #shutdown()} can wait for a save in progress.
+     */
+    private final Object saveBarrier = new Object();
+    private final ExecutorService parser;
+
+    /**
+     * The files of the current fileset by their locale. The map itself is never modified but replaced as a whole, so
+     * readers always see either the complete previous or the complete new fileset.
+     */
+    private volatile Map<String, ResourceFile> resources = Collections.emptyMap();
+    private volatile List<WriteTiming> lastSaveTimings = Collections.emptyList();
+    private volatile NormalizationReport lastNormalization = new NormalizationReport();
+
+    private volatile boolean syncOnSave = true;
+    private volatile SaveMode saveMode = SaveMode.REFORMAT;
+    private volatile SnapshotCache snapshotCache;
+    private volatile EditJournal editJournal;
+
+    private volatile Path currentPath;
+    private volatile String currentFileset;
+    /**
+     * The resource set the current fileset was loaded as, <tt>null</tt> if it cannot be cached.
+     */
+    private ResourceSet currentSet;
+
+    /**
+     * Filesets that were switched away from, least recently used first. Only accessed under the write lock.
+     */
+    private final LinkedHashMap<ResourceSet, CachedFileset> filesetCache = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile int maxCachedFilesets = 8;
+    private volatile long maxCachedBytes = 64L * 1024 * 1024;
+    /**
+     * The undo history of the current fileset. Cached filesets keep their own history.
+     */
+    private EditHistory history = new EditHistory();
+    private volatile long maxHistoryBytes = 4L * 1024 * 1024;
+
+    private final FilesetValidator validator = new FilesetValidator();
+
+    private volatile boolean loadOnDemand;
+    private volatile Set<String> displayedLocales = Collections.emptySet();
+    /**
+     * The locales of the current fileset that are not parsed yet, with the task parsing them. Replaced as a whole with
+     * the fileset, so that tasks of a previous fileset can tell they are outdated.
+     */
+    private volatile Map<String, FutureTask<Void>> deferred = Collections.emptyMap();
 
-    private final AtomicBoolean saved = new AtomicBoolean(true);
-    private Path currentPath;
-    private String currentFileset;
+    private FilesetWatcher watcher;
+    private Executor mergeExecutor;
+
+    /**
+     * Creates a model that parses up to as many files concurrently as there are processors available.
+     */
+    public FilesetModel() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a model that parses the files of a fileset on a bounded pool of background threads.
+     *
+     * @param parallelism
+     *         The maximum number of files to parse concurrently. Must be positive
+     */
+    public FilesetModel(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        parser = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "Resx-Parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
      * Adds a listener that is notified upon the completion of a parsing process
@@ -34,6 +125,200 @@ public class FilesetModel {
         parseCompletionListeners.add(listener);
     }
 
+    /**
+     * Adds a listener that is notified when a single file of a fileset could not be parsed. The remaining files of the
+     * fileset are loaded regardless.
+     *
+     * @param listener
+     *         A {@link BiConsumer} accepting the path of the failed file and the reason of the failure
+     */
+    public void addParseFailureListener(BiConsumer<Path, Throwable> listener) {
+        parseFailureListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener that is notified when a file of the current fileset was changed on disk and merged into the
+     * model. Only called while {@link #startWatching(Executor) watching}.
+     *
+     * @param listener
+     *         A {@link Consumer} accepting one event per changed locale
+     */
+    public void addExternalChangeListener(Consumer<ExternalChangeEvent> listener) {
+        externalChangeListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener that is notified whenever translations in the model change, be it through edits, loading a
+     * fileset, normalization or external changes. Listeners are called on the thread that caused the change.
+     *
+     * @param listener
+     *         A {@link Consumer} accepting a batch of changes per event
+     */
+    public void addTranslationChangeListener(Consumer<TranslationChangeEvent> listener) {
+        translationChangeListeners.add(listener);
+    }
+
+    private void fireTranslationChange(TranslationChangeEvent.Cause cause, boolean structural,
+                                       List<TranslationChangeEvent.Change> changes) {
+        final TranslationChangeEvent event = new TranslationChangeEvent(cause, structural, changes);
+        translationChangeListeners.forEach(listener -> listener.accept(event));
+    }
+
+    /**
+     * Starts watching the folder of the current fileset for files that are changed or created by others. Changed files
+     * are re-parsed in the background. Merging them into the model and notifying the external change listeners is
+     * done on the given executor, which should be the thread that accesses the model otherwise. Loading another
+     * fileset moves the watch to its folder.
+     *
+     * @param mergeExecutor
+     *         The executor to merge changed files into the model on
+     *
+     * @throws IOException
+     *         In case the folder of the current fileset cannot be watched
+     */
+    public void startWatching(Executor mergeExecutor) throws IOException {
+        this.mergeExecutor = Objects.requireNonNull(mergeExecutor, "mergeExecutor");
+        watchCurrentFolder();
+    }
+
+    /**
+     * Stops watching the folder of the current fileset.
+     */
+    public void stopWatching() {
+        mergeExecutor = null;
+        closeWatcher();
+    }
+
+    private void watchCurrentFolder() throws IOException {
+        if (mergeExecutor == null || currentPath == null
+                || watcher != null && watcher.getFolder().equals(currentPath)) {
+            return;
+        }
+        closeWatcher();
+        watcher = new FilesetWatcher(currentPath, this::onFilesChanged);
+    }
+
+    private void closeWatcher() {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+        watcher = null;
+    }
+
+    /**
+     * Called on the watching thread. Parses the changed files of the current fileset and hands them over for merging.
+     */
+    private void onFilesChanged(Set<Path> files) {
+        final Executor executor = mergeExecutor;
+        final String fileset = currentFileset;
+        if (executor == null || fileset == null) {
+            return;
+        }
+        for (Path file : files) {
+            if (!DataUtilities.belongsToFileset(file, fileset) || !Files.isRegularFile(file)) {
+                continue;
+            }
+            final ResourceFile known = resources.get(DataUtilities.getFileLocale(file));
+            if (known != null && known.isUnchangedOnDisk()) {
+                // most likely our own save
+                continue;
+            }
+            try {
+                final ResourceFile reread = new ResourceFile(file);
+                // a locale that is new to the model gets its journaled edits back, read here instead of under the lock
+                final List<EditJournal.Edit> edits = known == null
+                        ? journaledEdits(file.resolveSibling(fileNameString(fileset, FALLBACK_LOCALE)), reread.getLocale())
+                        : Collections.emptyList();
+                executor.execute(() -> mergeExternalChange(reread, edits));
+            } catch (RuntimeException e) {
+                final Throwable cause = e.getCause() == null ? e : e.getCause();
+                executor.execute(() -> parseFailureListeners.forEach(listener -> listener.accept(file, cause)));
+            }
+        }
+    }
+
+    private void mergeExternalChange(ResourceFile reread, List<EditJournal.Edit> edits) {
+        final String locale = reread.getLocale();
+        final Set<String> conflicts;
+        final List<TranslationChangeEvent.Change> changes = new ArrayList<>();
+        final Map<String, Set<String>> changedKeys = new HashMap<>();
+        boolean structural = false;
+
+        final long stamp = lock.writeLock();
+        try {
+            if (!reread.getFolder().equals(currentPath) || !reread.getName().equals(currentFileset)) {
+                // the fileset was switched in the meantime
+                return;
+            }
+            final boolean fallbackChanged = locale.equals(FALLBACK_LOCALE);
+            final Map<String, Map<String, String>> before = new HashMap<>();
+            resources.forEach((l, file) -> {
+                if (fallbackChanged || l.equals(locale)) {
+                    before.put(l, file.getEntries());
+                }
+            });
+
+            final ResourceFile existing = resources.get(locale);
+            if (existing == null) {
+                // also a deferred locale that was not parsed yet, which is attached just like its parse would
+                final FutureTask<Void> parse = deferred.remove(locale);
+                if (parse != null) {
+                    parse.cancel(false);
+                }
+                attach(reread, edits, new NormalizationReport());
+                before.put(locale, Collections.emptyMap());
+                conflicts = Collections.emptySet();
+            } else {
+                conflicts = existing.mergeFrom(reread);
+            }
+            final ResourceFile fallback = resources.get(FALLBACK_LOCALE);
+            if (fallbackChanged) {
+                normalizeResourceFiles(resources);
+            } else {
+                resources.get(locale).normalize(fallback.getKeyTable(), fallback, new NormalizationReport());
+            }
+
+            for (Map.Entry<String, Map<String, String>> entry : before.entrySet()) {
+                final String l = entry.getKey();
+                final Map<String, String> oldEntries = entry.getValue();
+                final Map<String, String> newEntries = resources.get(l).getEntries();
+                final Set<String> changed = new TreeSet<>();
+                oldEntries.forEach((key, value) -> {
+                    if (!newEntries.containsKey(key) || !Objects.equals(value, newEntries.get(key))) {
+                        changed.add(key);
+                    }
+                });
+                for (String key : newEntries.keySet()) {
+                    if (!oldEntries.containsKey(key)) {
+                        changed.add(key);
+                        structural = true;
+                    }
+                }
+                structural |= !newEntries.keySet().containsAll(oldEntries.keySet());
+                changed.forEach(key -> changes.add(new TranslationChangeEvent.Change(l, key, oldEntries.get(key), newEntries.get(key))));
+                changedKeys.put(l, changed);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (!changes.isEmpty()) {
+            fireTranslationChange(TranslationChangeEvent.Cause.EXTERNAL_CHANGE, structural, changes);
+        }
+        changedKeys.forEach((l, changed) -> {
+            final Set<String> localConflicts = l.equals(locale) ? conflicts : Collections.emptySet();
+            if (!changed.isEmpty() || !localConflicts.isEmpty()) {
+                final ExternalChangeEvent event = new ExternalChangeEvent(l, changed, localConflicts);
+                externalChangeListeners.forEach(listener -> listener.accept(event));
+            }
+        });
+    }
+
     /**
      * Loads the fileset of the given file into memory. As Fileset are considered all files that have the same opening
      * name. The Filename for our purposes consists of the fileset, the optional locale and the extension <tt>resx</tt>
@@ -51,28 +336,507 @@ public class FilesetModel {
         if (file.toFile().isDirectory()) {
             throw new IllegalArgumentException("We need to work with an actual file");
         }
-        this.currentPath = file.getParent();
-        this.currentFileset = DataUtilities.getFileIdentifier(file);
-        loadResourceFiles(ResourceFile.getResourceFiles(currentPath, currentFileset));
+        final Path folder = file.getParent();
+        final String fileset = DataUtilities.getFileIdentifier(file);
+        final ResourceSet key = cacheKey(ResourceSet.create(file));
+        if (restoreCached(key)) {
+            return;
+        }
+        loadResourceFiles(folder, fileset, key, DataUtilities.streamFileset(folder, fileset));
     }
 
+    /**
+     * Loads the files of the given resource set into memory. If the set was loaded before and is still cached, its
+     * files are taken from the cache including their unsaved changes; only files changed on disk since are read again.
+     *
+     * @param resourceSet
+     *         The resource set to load
+     *
+     * @throws IOException
+     *         in case the fileset cannot be read from disk.
+     */
     public void loadResxFileset(final ResourceSet resourceSet) throws IOException {
-        this.currentPath = resourceSet.getFolder();
-        this.currentFileset = resourceSet.getName();
-        loadResourceFiles(ResourceFile.getResourceFiles(resourceSet));
+        final ResourceSet key = cacheKey(resourceSet);
+        if (restoreCached(key)) {
+            return;
+        }
+        loadResourceFiles(resourceSet.getFolder(), resourceSet.getName(), key,
+                ResourceFile.getResourceFilePaths(resourceSet));
     }
 
-    private void loadResourceFiles(Stream<ResourceFile> resourceFiles) {
-        resources.clear();
-        resources.putAll(resourceFiles.collect(Collectors.toMap(ResourceFile::getLocale, Function.identity())));
-        normalizeResourceFiles();
+    /**
+     * ResourceSets are mutable, so the cache works with copies of them
+     */
+    private static ResourceSet cacheKey(ResourceSet resourceSet) {
+        return resourceSet == null
+                ? null
+                : new ResourceSet(resourceSet.getName(), resourceSet.getFolder(), resourceSet.getLocales());
+    }
+
+    /**
+     * Parses all given files concurrently and replaces the current resources once all of them are finished. Files that
+     * fail to parse are reported to the parse failure listeners and left out. Until the new fileset is complete and
+     * normalized, readers keep seeing the previous one.
+     *
+     * @throws IOException
+     *         In case the fallback locale could not be parsed or the loading was interrupted
+     */
+    private void loadResourceFiles(Path folder, String fileset, ResourceSet key, Stream<Path> files) throws IOException {
+        final Map<Path, Future<ResourceFile>> parses = new LinkedHashMap<>();
+        final Map<String, Path> later = new HashMap<>();
+        final boolean onDemand = loadOnDemand;
+        final Set<String> displayed = displayedLocales;
+        files.forEach(file -> {
+            final String locale = getFileLocale(file);
+            if (onDemand && !locale.equals(FALLBACK_LOCALE) && !displayed.contains(locale)) {
+                later.put(locale, file);
+            } else {
+                parses.put(file, parser.submit(() -> parse(file)));
+            }
+        });
+
+        final Map<String, ResourceFile> parsed = new HashMap<>();
+        final Map<Path, Throwable> failures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, Future<ResourceFile>> parse : parses.entrySet()) {
+                try {
+                    final ResourceFile file = parse.getValue().get();
+                    parsed.put(file.getLocale(), file);
+                } catch (ExecutionException e) {
+                    // ResourceFile wraps the actual reason
+                    final Throwable cause = e.getCause().getCause() == null ? e.getCause() : e.getCause().getCause();
+                    failures.put(parse.getKey(), cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            parses.values().forEach(parse -> parse.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Loading the fileset " + fileset + " was interrupted");
+        }
+        failures.forEach((file, cause) -> parseFailureListeners.forEach(listener -> listener.accept(file, cause)));
+        if (!parsed.containsKey(FALLBACK_LOCALE)) {
+            final Path fallback = folder.resolve(fileNameString(fileset, FALLBACK_LOCALE));
+            throw new IOException("Could not parse the fallback locale of " + fileset, failures.get(fallback));
+        }
+
+        // nobody else knows the parsed files yet
+        final NormalizationReport normalized = normalizeResourceFiles(parsed);
+        recoverJournaledEdits(folder.resolve(fileNameString(fileset, FALLBACK_LOCALE)), parsed);
+        final long stamp = lock.writeLock();
+        try {
+            publish(folder, fileset, key, parsed, new EditHistory(), later);
+            lastNormalization = normalized;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        watchCurrentFolder();
         parseCompletionListeners.forEach(Runnable::run);
+        // normalizing happened before publishing, so the load already covers it and views rebuild only once
+        fireTranslationChange(TranslationChangeEvent.Cause.LOAD, true, normalized.getChanges());
+    }
+
+    /**
+     * Applies the edits journaled for a fileset that were not saved before the application ended, so that they are
+     * unsaved changes again.
+     */
+    private void recoverJournaledEdits(Path fallback, Map<String, ResourceFile> files) {
+        final EditJournal journal = editJournal;
+        if (journal == null) {
+            return;
+        }
+        applyEdits(journal.read(fallback), files);
+    }
+
+    /**
+     * Reads the edits journaled for a single locale of a fileset. Reads from disk, so it must not be called under the
+     * lock.
+     */
+    private List<EditJournal.Edit> journaledEdits(Path fallback, String locale) {
+        final EditJournal journal = editJournal;
+        if (journal == null) {
+            return Collections.emptyList();
+        }
+        final List<EditJournal.Edit> edits = new ArrayList<>();
+        for (EditJournal.Edit edit : journal.read(fallback)) {
+            if (edit.getLocale().equals(locale)) {
+                edits.add(edit);
+            }
+        }
+        return edits;
+    }
+
+    private static void applyEdits(List<EditJournal.Edit> edits, Map<String, ResourceFile> files) {
+        for (EditJournal.Edit edit : edits) {
+            final ResourceFile file = files.get(edit.getLocale());
+            if (file != null) {
+                file.updateTranslation(edit.getKey(), edit.getValue());
+            }
+        }
+    }
+
+    /**
+     * Appends the given changes to the journal of the current fileset. Must be called under the write lock, so that
+     * the journal has the same order as the changes.
+     */
+    private void journal(List<TranslationChangeEvent.Change> changes) {
+        final EditJournal journal = editJournal;
+        if (journal == null || changes.isEmpty()) {
+            return;
+        }
+        final Path fallback = currentPath.resolve(fileNameString(currentFileset, FALLBACK_LOCALE));
+        changes.forEach(change -> journal.append(fallback, change.getLocale(), change.getKey(), change.getNewValue()));
+    }
+
+    /**
+     * Makes the given files the current fileset and moves the previous one into the fileset cache. Must be called
+     * under the write lock.
+     */
+    private void publish(Path folder, String fileset, ResourceSet key, Map<String, ResourceFile> files,
+                         EditHistory filesHistory, Map<String, Path> later) {
+        if (currentSet != null && !currentSet.equals(key) && maxCachedFilesets > 0) {
+            filesetCache.put(currentSet, new CachedFileset(currentPath, currentFileset, new HashMap<>(resources), history));
+        }
+        filesetCache.remove(key);
+        resources = Collections.unmodifiableMap(files);
+        history = filesHistory;
+        currentPath = folder;
+        currentFileset = fileset;
+        currentSet = key;
+        evictCachedFilesets();
+        defer(later);
+    }
+
+    /**
+     * Parses the given locales of the current fileset in the background. Parses of the previous fileset are cancelled.
+     * Running parses are not interrupted, since that fails them; they finish and their result is discarded. Must be
+     * called under the write lock.
+     */
+    private void defer(Map<String, Path> files) {
+        deferred.values().forEach(parse -> parse.cancel(false));
+        if (files.isEmpty()) {
+            deferred = Collections.emptyMap();
+            return;
+        }
+        final Map<String, FutureTask<Void>> pending = new ConcurrentHashMap<>();
+        files.forEach((locale, file) -> pending.put(locale, new FutureTask<>(() -> attachDeferred(pending, locale, file), null)));
+        deferred = pending;
+        pending.values().forEach(parser::execute);
+    }
+
+    /**
+     * Parses a deferred locale and adds it to the current fileset, unless the fileset was replaced in the meantime.
+     */
+    private void attachDeferred(Map<String, FutureTask<Void>> pending, String locale, Path file) {
+        final ResourceFile parsed;
+        try {
+            parsed = parse(file);
+        } catch (IOException | RuntimeException e) {
+            pending.remove(locale);
+            if (deferred != pending || Thread.currentThread().isInterrupted()) {
+                // the fileset was replaced or the model shut down, nobody is interested in this locale anymore
+                return;
+            }
+            // ResourceFile wraps the actual reason
+            final Throwable cause = e.getCause() == null ? e : e.getCause();
+            parseFailureListeners.forEach(listener -> listener.accept(file, cause));
+            return;
+        }
+        final List<EditJournal.Edit> edits =
+                journaledEdits(file.resolveSibling(fileNameString(parsed.getName(), FALLBACK_LOCALE)), locale);
+        final NormalizationReport report = new NormalizationReport();
+        final long stamp = lock.writeLock();
+        try {
+            if (deferred != pending || resources.containsKey(locale)) {
+                return;
+            }
+            attach(parsed, edits, report);
+        } finally {
+            pending.remove(locale);
+            lock.unlockWrite(stamp);
+        }
+        if (!report.getChanges().isEmpty()) {
+            fireTranslationChange(TranslationChangeEvent.Cause.NORMALIZATION,
+                    report.getAddedKeys() + report.getDroppedKeys() > 0, report.getChanges());
+        }
+    }
+
+    /**
+     * Adds a locale that is new to the current fileset: normalizes it and applies its journaled edits. Must be called
+     * under the write lock.
+     */
+    private void attach(ResourceFile file, List<EditJournal.Edit> edits, NormalizationReport report) {
+        final String locale = file.getLocale();
+        final ResourceFile fallback = resources.get(FALLBACK_LOCALE);
+        file.normalize(fallback.getKeyTable(), fallback, report);
+        applyEdits(edits, Collections.singletonMap(locale, file));
+        final Map<String, ResourceFile> grown = new HashMap<>(resources);
+        grown.put(locale, file);
+        resources = Collections.unmodifiableMap(grown);
+    }
+
+    /**
+     * Makes sure the given locale is parsed, if it was deferred. If its parse has not started yet, it is run on the
+     * calling thread instead of waiting for the background. Must not be called under the lock.
+     */
+    private void ensureLoaded(String locale) {
+        final FutureTask<Void> parse = deferred.get(locale);
+        if (parse == null) {
+            return;
+        }
+        parse.run();
+        try {
+            parse.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (CancellationException e) {
+            // the locale was attached by an external change or the fileset was replaced
+        } catch (ExecutionException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Sets whether only the fallback locale and the displayed locales are parsed when loading a fileset. All other
+     * locales are listed right away, but parsed in the background; they are parsed on the calling thread when they are
+     * needed before that. Disabled by default.
+     *
+     * @param loadOnDemand
+     *         True to defer parsing locales that are not displayed, false to parse all locales before a fileset is
+     *         published
+     */
+    public void setLoadOnDemand(boolean loadOnDemand) {
+        this.loadOnDemand = loadOnDemand;
     }
 
-    private void normalizeResourceFiles() {
-        final Set<String> singleTruth = resources.get(FALLBACK_LOCALE).getKeys();
-        resources.values().forEach(file -> file.normalize(singleTruth, resources.get(FALLBACK_LOCALE)));
-        saved.lazySet(false);
+    /**
+     * Sets the locales that are displayed, which are parsed right away when loading on demand.
+     *
+     * @param locales
+     *         The displayed locales
+     */
+    public void setDisplayedLocales(Collection<String> locales) {
+        displayedLocales = Collections.unmodifiableSet(new HashSet<>(locales));
+    }
+
+    /**
+     * Drops the least recently used filesets without unsaved changes until the cache is within its limits. Filesets
+     * with unsaved changes are never dropped, so they may exceed the limits. Must be called under the write lock.
+     */
+    private void evictCachedFilesets() {
+        long cachedBytes = filesetCache.values().stream().mapToLong(CachedFileset::estimateHeapSize).sum();
+        final Iterator<CachedFileset> leastRecentlyUsed = filesetCache.values().iterator();
+        while ((filesetCache.size() > maxCachedFilesets || cachedBytes > maxCachedBytes) && leastRecentlyUsed.hasNext()) {
+            final CachedFileset candidate = leastRecentlyUsed.next();
+            if (!candidate.isDirty()) {
+                cachedBytes -= candidate.estimateHeapSize();
+                leastRecentlyUsed.remove();
+            }
+        }
+    }
+
+    /**
+     * Makes a cached fileset the current one again. Files changed on disk in the meantime are read again and merged
+     * like external changes, so unsaved changes are kept. Locales added on disk in the meantime are loaded like they
+     * would be for a fileset that was not cached. Everything is read from disk before the lock is taken; only merging
+     * and publishing happen under it.
+     *
+     * @return True if the fileset was cached, false if it has to be loaded
+     */
+    private boolean restoreCached(ResourceSet key) {
+        if (key == null) {
+            return false;
+        }
+        final Map<String, Set<String>> conflicts = new HashMap<>();
+        NormalizationReport normalized = null;
+        CachedFileset cached = cachedFileset(key);
+        while (cached != null && normalized == null) {
+            final CachedFileset reading = cached;
+            final Map<String, ResourceFile> rereads = new HashMap<>();
+            for (ResourceFile file : reading.files.values()) {
+                if (file.isUnchangedOnDisk()) {
+                    continue;
+                }
+                try {
+                    rereads.put(file.getLocale(),
+                            parse(reading.folder.resolve(fileNameString(reading.fileset, file.getLocale()))));
+                } catch (IOException | RuntimeException e) {
+                    // keep what we have, saving writes it back
+                    e.printStackTrace(System.err);
+                }
+            }
+            final Map<String, Path> later = unparsedLocales(reading);
+            final Map<String, ResourceFile> added = new HashMap<>();
+            final Map<String, List<EditJournal.Edit>> recovered = new HashMap<>();
+            if (!loadOnDemand) {
+                final Path fallback = reading.folder.resolve(fileNameString(reading.fileset, FALLBACK_LOCALE));
+                later.forEach((locale, file) -> {
+                    try {
+                        added.put(locale, parse(file));
+                        recovered.put(locale, journaledEdits(fallback, locale));
+                    } catch (IOException | RuntimeException e) {
+                        final Throwable cause = e.getCause() == null ? e : e.getCause();
+                        parseFailureListeners.forEach(listener -> listener.accept(file, cause));
+                    }
+                });
+                later.clear();
+            }
+
+            final long stamp = lock.writeLock();
+            try {
+                cached = key.equals(currentSet) ? null : filesetCache.get(key);
+                if (cached != reading) {
+                    // restored or evicted while reading from disk, start over with what is cached now
+                    continue;
+                }
+                rereads.forEach((locale, reread) -> {
+                    final Set<String> conflicting = reading.files.get(locale).mergeFrom(reread);
+                    if (!conflicting.isEmpty()) {
+                        conflicts.put(locale, conflicting);
+                    }
+                });
+                // the cached map is read outside the lock, so it is never modified
+                final Map<String, ResourceFile> files = new HashMap<>(reading.files);
+                added.forEach(files::putIfAbsent);
+                normalized = normalizeResourceFiles(files);
+                recovered.values().forEach(edits -> applyEdits(edits, files));
+                lastNormalization = normalized;
+                publish(reading.folder, reading.fileset, key, files, reading.history, later);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        if (normalized == null) {
+            return false;
+        }
+        try {
+            watchCurrentFolder();
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+        parseCompletionListeners.forEach(Runnable::run);
+        fireTranslationChange(TranslationChangeEvent.Cause.LOAD, true, normalized.getChanges());
+        conflicts.forEach((locale, keys) -> {
+            final ExternalChangeEvent event = new ExternalChangeEvent(locale, keys, keys);
+            externalChangeListeners.forEach(listener -> listener.accept(event));
+        });
+        return true;
+    }
+
+    /**
+     * @return The cached fileset of the given resource set, <tt>null</tt> if it is not cached or already current
+     */
+    private CachedFileset cachedFileset(ResourceSet key) {
+        final long stamp = lock.writeLock();
+        try {
+            // the cache is ordered by access, so even looking a fileset up modifies it
+            return key.equals(currentSet) ? null : filesetCache.get(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The files of the locales of a cached fileset that were not parsed before it was cached, or that were
+     * added on disk since. Reads the folder, so it must not be called under the lock
+     */
+    private static Map<String, Path> unparsedLocales(CachedFileset cached) {
+        try {
+            final Map<String, Path> unparsed = new HashMap<>(DirectoryIndex.of(cached.folder).getFileset(cached.fileset));
+            unparsed.keySet().removeAll(cached.files.keySet());
+            return unparsed;
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Sets how many filesets are kept in memory after switching to another one. Switching back to a cached fileset
+     * does not parse it again and keeps its unsaved changes.
+     *
+     * @param maxFilesets
+     *         The maximum number of cached filesets, 0 to disable caching. Defaults to 8
+     * @param maxBytes
+     *         The maximum estimated heap size of all cached filesets together. Defaults to 64 MiB
+     */
+    public void setFilesetCacheLimits(int maxFilesets, long maxBytes) {
+        if (maxFilesets < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        maxCachedFilesets = maxFilesets;
+        maxCachedBytes = maxBytes;
+        final long stamp = lock.writeLock();
+        try {
+            evictCachedFilesets();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static final class CachedFileset {
+        private final Path folder;
+        private final String fileset;
+        private final Map<String, ResourceFile> files;
+        private final EditHistory history;
+        private final long heapSize;
+
+        private CachedFileset(Path folder, String fileset, Map<String, ResourceFile> files, EditHistory history) {
+            this.folder = folder;
+            this.fileset = fileset;
+            this.files = files;
+            this.history = history;
+            final ResourceFile fallback = files.get(FALLBACK_LOCALE);
+            this.heapSize = (fallback == null ? 0 : fallback.getKeyTable().estimateHeapSize())
+                    + files.values().stream().mapToLong(ResourceFile::estimateHeapSize).sum()
+                    + history.estimateHeapSize();
+        }
+
+        private long estimateHeapSize() {
+            return heapSize;
+        }
+
+        private boolean isDirty() {
+            return files.values().stream().anyMatch(ResourceFile::isDirty);
+        }
+    }
+
+    private ResourceFile parse(Path file) throws IOException {
+        final SnapshotCache cache = snapshotCache;
+        if (cache == null) {
+            return new ResourceFile(file);
+        }
+        final SnapshotCache.Stamp stamp = cache.stamp(file);
+        final Map<String, String> snapshot = cache.read(file, stamp);
+        if (snapshot != null) {
+            return new ResourceFile(file, snapshot);
+        }
+        final ResourceFile parsed = new ResourceFile(file);
+        cache.write(file, stamp, parsed.getEntries());
+        return parsed;
+    }
+
+    /**
+     * Normalizes all files against the fallback locale. Afterwards all files share the key table of the fallback
+     * locale, so every key is only held once for the whole fileset and the translations of all locales are stored in
+     * arrays indexed by the same key ordinals.
+     *
+     * @return How many keys were added to and dropped from every locale
+     */
+    private static NormalizationReport normalizeResourceFiles(Map<String, ResourceFile> files) {
+        final ResourceFile fallback = files.get(FALLBACK_LOCALE);
+        final KeyTable singleTruth = fallback.getKeyTable();
+        final NormalizationReport report = new NormalizationReport();
+        files.values().forEach(file -> file.normalize(singleTruth, fallback, report));
+        return report;
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        final long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -81,7 +845,9 @@ public class FilesetModel {
      * @return an unordered Set of available locales
      */
     public Set<String> getAvailableLocales() {
-        return resources.keySet();
+        final Set<String> locales = new TreeSet<>(resources.keySet());
+        locales.addAll(deferred.keySet());
+        return Collections.unmodifiableSet(locales);
     }
 
     /**
@@ -90,14 +856,21 @@ public class FilesetModel {
      * @param locale
      *         The locale of the translations to return.
      *
-     * @return A list of {@link Translation Translations} ordered alphabetically by their {@link Translation#key}
+     * @return An unmodifiable snapshot of the {@link Translation Translations} ordered alphabetically by their
+     * {@link Translation#key}. It never changes, later updates are only contained in the next snapshot
      */
     public List<Translation> getTranslations(final String locale) {
-        return resources.get(locale).orderedTranslations();
+        ensureLoaded(locale);
+        return read(() -> {
+            final ResourceFile file = resources.get(locale);
+            // a deferred locale may have failed to parse
+            return file == null ? Collections.<Translation>emptyList() : file.orderedTranslations();
+        });
     }
 
     /**
-     * Updates the Translation for a given locale at the given key to the given new translation.
+     * Updates the Translation for a given locale at the given key to the given new translation. If that changes the
+     * translation, the translation change listeners are notified with an {@link TranslationChangeEvent.Cause#EDIT}.
      *
      * @param locale
      *         The locale of the resx-file to modify
@@ -108,20 +881,292 @@ public class FilesetModel {
      */
     public void updateTranslation(final String locale, final String key,
                                   final String newTranslation) {
-        resources.get(locale).updateTranslation(key, newTranslation);
+        updateTranslations(locale, Collections.singletonMap(key, newTranslation));
+    }
+
+    /**
+     * Updates multiple translations of a locale at once, e.g. when pasting them. The updates are undone and redone as
+     * a whole and reported in a single event.
+     *
+     * @param locale
+     *         The locale to update the translations of
+     * @param newTranslations
+     *         The new values of the translations by their key, applied in iteration order
+     */
+    public void updateTranslations(final String locale, final Map<String, String> newTranslations) {
+        ensureLoaded(locale);
+        final List<TranslationChangeEvent.Change> changes = new ArrayList<>();
+        boolean added = false;
+        final long stamp = lock.writeLock();
+        try {
+            final ResourceFile file = resources.get(locale);
+            for (Map.Entry<String, String> update : newTranslations.entrySet()) {
+                final String key = update.getKey();
+                final boolean missing = !file.getKeys().contains(key);
+                final String oldTranslation = file.getTranslation(key);
+                file.updateTranslation(key, update.getValue());
+                if (missing || !Objects.equals(oldTranslation, update.getValue())) {
+                    added |= missing;
+                    changes.add(new TranslationChangeEvent.Change(locale, key, oldTranslation, update.getValue()));
+                }
+            }
+            history.record(changes, maxHistoryBytes);
+            journal(changes);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (!changes.isEmpty()) {
+            fireTranslationChange(TranslationChangeEvent.Cause.EDIT, added, changes);
+        }
+    }
+
+    /**
+     * Reverts the most recent group of edits of the current fileset. Edits can be undone until the fileset is loaded
+     * from disk again; saving does not clear the history.
+     *
+     * @return True if edits were undone, false if there was nothing to undo
+     */
+    public boolean undo() {
+        return replay(true);
+    }
+
+    /**
+     * Applies the most recently undone group of edits again. Making another edit drops all edits that could be redone.
+     *
+     * @return True if edits were redone, false if there was nothing to redo
+     */
+    public boolean redo() {
+        return replay(false);
+    }
+
+    private boolean replay(boolean undo) {
+        final List<TranslationChangeEvent.Change> changes = new ArrayList<>();
+        final long stamp = lock.writeLock();
+        try {
+            final EditHistory.Group group = undo ? history.undo() : history.redo();
+            if (group == null) {
+                return false;
+            }
+            for (int i = 0; i < group.size(); i++) {
+                // undo in reverse order, so that repeated edits of a key end up at the first old value
+                final int index = undo ? group.size() - 1 - i : i;
+                final ResourceFile file = resources.get(group.getLocale(index));
+                if (file == null) {
+                    continue;
+                }
+                final String key = group.getKey(index);
+                final String value = undo ? group.getOldValue(index) : group.getNewValue(index);
+                final String current = file.getTranslation(key);
+                file.updateTranslation(key, value);
+                changes.add(new TranslationChangeEvent.Change(group.getLocale(index), key, current, value));
+            }
+            journal(changes);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (!changes.isEmpty()) {
+            fireTranslationChange(TranslationChangeEvent.Cause.EDIT, false, changes);
+        }
+        return true;
+    }
+
+    public boolean canUndo() {
+        return read(() -> history.canUndo());
+    }
+
+    public boolean canRedo() {
+        return read(() -> history.canRedo());
     }
 
     /**
-     * Saves all changes from the in-memory-cache to disk
+     * Sets how much memory the undo history of the current fileset may use. When the history grows beyond it, the
+     * oldest edits can no longer be undone.
+     *
+     * @param maxBytes
+     *         The maximum estimated heap size of the history, 0 to disable undo. Defaults to 4 MiB
+     */
+    public void setUndoLimit(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("The undo limit must not be negative");
+        }
+        maxHistoryBytes = maxBytes;
+        final long stamp = lock.writeLock();
+        try {
+            history.trim(maxBytes);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Saves all changes from the in-memory-cache to disk, including those of cached filesets. Only files with unsaved
+     * changes are written. Safe to call from a background thread; edits are held back only while a single file is
+     * written.
      *
      * @throws IOException
      *         In case saving the changes fails
      */
     public void saveAll() throws IOException {
-        for (ResourceFile file : resources.values()) {
-            file.save();
+        synchronized (saveBarrier) {
+            final List<WriteTiming> timings = new ArrayList<>();
+            for (ResourceFile file : read(this::allFiles)) {
+                final long stamp = lock.writeLock();
+                try {
+                    if (file.isDirty()) {
+                        timings.add(file.save(saveMode, syncOnSave));
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+            lastSaveTimings = Collections.unmodifiableList(timings);
+            truncateJournals(false);
+        }
+    }
+
+    /**
+     * Drops the journals of the current and all cached filesets. Unless forced, only those of filesets without unsaved
+     * changes are dropped, which were edited again while saving.
+     */
+    private void truncateJournals(boolean force) {
+        final EditJournal journal = editJournal;
+        if (journal == null) {
+            return;
+        }
+        final long stamp = lock.writeLock();
+        try {
+            if (currentPath != null && (force || resources.values().stream().noneMatch(ResourceFile::isDirty))) {
+                journal.truncate(currentPath.resolve(fileNameString(currentFileset, FALLBACK_LOCALE)));
+            }
+            for (CachedFileset cached : filesetCache.values()) {
+                if (force || !cached.isDirty()) {
+                    journal.truncate(cached.folder.resolve(fileNameString(cached.fileset, FALLBACK_LOCALE)));
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drops the journaled edits of the current and all cached filesets, so that their unsaved changes are not
+     * recovered when they are loaded again. Used when unsaved changes are deliberately thrown away.
+     */
+    public void discardJournal() {
+        truncateJournals(true);
+    }
+
+    /**
+     * @return The files of the current and all cached filesets. Must be called under the lock
+     */
+    private List<ResourceFile> allFiles() {
+        final List<ResourceFile> all = new ArrayList<>(resources.values());
+        filesetCache.values().forEach(cached -> all.addAll(cached.files.values()));
+        return all;
+    }
+
+    /**
+     * Stops watching for external changes and parsing files, and waits for a save that is in progress to complete and
+     * for all edits to be journaled. Unsaved changes are kept, but the model cannot load filesets anymore afterwards.
+     */
+    public void shutdown() {
+        stopWatching();
+        parser.shutdownNow();
+        synchronized (saveBarrier) {
+            final EditJournal journal = editJournal;
+            if (journal != null) {
+                try {
+                    journal.flush();
+                } catch (InterruptedIOException e) {
+                    e.printStackTrace(System.err);
+                }
+            }
         }
-        saved.lazySet(true);
+    }
+
+    /**
+     * Returns the number of translations waiting to be written by the next save, across the current and all cached
+     * filesets. Repeated changes of the same translation are counted once, only the latest value is written.
+     *
+     * @return The number of unsaved translations
+     */
+    public int getPendingChangeCount() {
+        return read(() -> allFiles().stream().mapToInt(ResourceFile::getPendingChangeCount).sum());
+    }
+
+    /**
+     * Returns how long the oldest unsaved change across the current and all cached filesets has been waiting to be
+     * written.
+     *
+     * @param unit
+     *         The unit to return the time in
+     *
+     * @return The age of the oldest unsaved change, 0 if there are no unsaved changes
+     */
+    public long getPendingChangeLag(TimeUnit unit) {
+        final long nanos = read(() -> allFiles().stream().mapToLong(ResourceFile::getPendingChangeAge).max().orElse(0));
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets whether saved files are forced to the storage device before they replace the originals. Syncing is enabled
+     * by default. Disabling it speeds up saving at the risk of losing the latest save on a system crash.
+     *
+     * @param syncOnSave
+     *         True to sync every saved file, false otherwise
+     */
+    public void setSyncOnSave(boolean syncOnSave) {
+        this.syncOnSave = syncOnSave;
+    }
+
+    /**
+     * Sets the cache to take the keys and values of unchanged files from instead of parsing them. Files that are parsed
+     * are added to the cache.
+     *
+     * @param snapshotCache
+     *         The cache to use, <tt>null</tt> to always parse all files
+     */
+    public void setSnapshotCache(SnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    /**
+     * Sets the journal that every edit is appended to, so that unsaved edits can be recovered after a crash. Journaled
+     * edits are applied again when their fileset is loaded from disk, and dropped once the fileset is saved.
+     *
+     * @param editJournal
+     *         The journal to use, <tt>null</tt> to not journal edits
+     */
+    public void setEditJournal(EditJournal editJournal) {
+        this.editJournal = editJournal;
+    }
+
+    /**
+     * Sets how changed files are written by {@link #saveAll()}. Files are reformatted by default.
+     *
+     * @param saveMode
+     *         The mode to save files with
+     */
+    public void setSaveMode(SaveMode saveMode) {
+        this.saveMode = Objects.requireNonNull(saveMode, "saveMode");
+    }
+
+    /**
+     * Returns how long writing each file took during the last call to {@link #saveAll()}
+     *
+     * @return A list of timings, one for every file that was written
+     */
+    public List<WriteTiming> getLastSaveTimings() {
+        return new ArrayList<>(lastSaveTimings);
+    }
+
+    /**
+     * Returns how the locales of the current fileset were normalized when it was loaded
+     *
+     * @return A report of the keys added to and dropped from every locale
+     */
+    public NormalizationReport getLastNormalization() {
+        return lastNormalization;
     }
 
     /**
@@ -132,20 +1177,79 @@ public class FilesetModel {
      * @param key
      *         The key uniquely identifying the Translation
      *
-     * @return The translation for the given locale at the given key
+     * @return The translation for the given locale at the given key. Its value is <tt>null</tt> if the locale or the
+     * key does not exist
      */
     public Translation getSingleTranslation(final String locale, final String key) {
-        final String currentValue = resources.get(locale).getTranslation(key);
+        ensureLoaded(locale);
+        long stamp = lock.tryOptimisticRead();
+        String currentValue = stamp == 0 ? null : translationOf(locale, key);
+        if (stamp == 0 || !lock.validate(stamp)) {
+            // a write or a reload happened in the meantime
+            stamp = lock.readLock();
+            try {
+                currentValue = translationOf(locale, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
         return new Translation(locale, key, currentValue);
     }
 
+    /**
+     * Looks the file up in the current resources as well, so that a validated optimistic read never mixes two
+     * filesets.
+     */
+    private String translationOf(String locale, String key) {
+        final ResourceFile file = resources.get(locale);
+        return file == null ? null : file.getTranslation(key);
+    }
+
+    /**
+     * Validates every locale of the current fileset against the fallback locale, in parallel. Locales that are not
+     * parsed yet are parsed first.
+     *
+     * @return A report of the offending keys of every locale
+     */
+    public ValidationReport validate() {
+        getAvailableLocales().forEach(this::ensureLoaded);
+        final Map<String, List<Translation>> locales = new HashMap<>();
+        final List<Translation> fallback = read(() -> {
+            // snapshots, edits made while validating are not seen
+            resources.forEach((locale, file) -> locales.put(locale, file.orderedTranslations()));
+            return locales.remove(FALLBACK_LOCALE);
+        });
+        if (fallback == null) {
+            return new ValidationReport(Collections.emptyMap());
+        }
+        return validator.validate(fallback, locales);
+    }
+
     /**
      * Checks whether the current in-memory-cache has been saved to disk.<br />
      * <b>BEWARE:</b> This does not check whether the in-memory-cache is up to date with the content on disk
      *
-     * @return True if the cache has been saved, false otherwise
+     * @return False if the current and all cached filesets have been saved, true otherwise
      */
     public boolean isDirty() {
-        return !saved.get();
+        return read(() -> allFiles().stream().anyMatch(ResourceFile::isDirty));
+    }
+
+    /**
+     * Returns the keys that have been changed since the last save, grouped by their locale. Locales without unsaved
+     * changes are omitted.
+     *
+     * @return A Map from locales to the keys changed in them
+     */
+    public Map<String, Set<String>> getChangedKeys() {
+        return read(() -> {
+            final Map<String, Set<String>> result = new HashMap<>();
+            resources.forEach((locale, file) -> {
+                if (file.isDirty()) {
+                    result.put(locale, file.getChangedKeys());
+                }
+            });
+            return result;
+        });
     }
 }
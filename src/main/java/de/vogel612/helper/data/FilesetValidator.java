@@ -0,0 +1,140 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Validates every translation of every locale of a fileset against the translation of the fallback locale with the
+ * same key, see {@link NotableData}. Every locale is validated as a separate fork/join task, and large locales are
+ * split into ranges of keys, so that all locales are validated in parallel.
+ */
+public class FilesetValidator {
+
+    /**
+     * The number of translations below which a range is validated without splitting it further.
+     */
+    private static final int THRESHOLD = 2048;
+
+    private final ForkJoinPool pool;
+
+    public FilesetValidator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FilesetValidator(ForkJoinPool pool) {
+        Objects.requireNonNull(pool, "pool");
+        this.pool = pool;
+    }
+
+    /**
+     * Validates the given locales against the fallback locale.
+     *
+     * @param fallback
+     *         The translations of the fallback locale, ordered by their key
+     * @param locales
+     *         The translations of every other locale, ordered by their key
+     *
+     * @return A report of the offending keys of every locale
+     */
+    public ValidationReport validate(List<Translation> fallback, Map<String, List<Translation>> locales) {
+        return pool.invoke(new RecursiveTask<ValidationReport>() {
+            @Override
+            protected ValidationReport compute() {
+                final Map<String, RangeValidation> validations = new HashMap<>();
+                final ValueProfile[] fallbackProfiles = new ValueProfile[fallback.size()];
+                locales.forEach((locale, translations) -> validations.put(locale,
+                        new RangeValidation(fallback, fallbackProfiles, translations, 0, translations.size())));
+                ForkJoinTask.invokeAll(validations.values());
+                final Map<String, EnumMap<Notability, List<String>>> offendingKeys = new HashMap<>();
+                validations.forEach((locale, validation) -> offendingKeys.put(locale, validation.join()));
+                return new ValidationReport(offendingKeys);
+            }
+        });
+    }
+
+    private static final class RangeValidation extends RecursiveTask<EnumMap<Notability, List<String>>> {
+        private static final long serialVersionUID = 1L;
+        private final List<Translation> fallback;
+        /**
+         * Shared by all locales and filled on first use. Tasks may race to profile the same value, which only
+         * duplicates some work.
+         */
+        private final ValueProfile[] fallbackProfiles;
+        private final List<Translation> translations;
+        private final int from;
+        private final int to;
+
+        private RangeValidation(List<Translation> fallback, ValueProfile[] fallbackProfiles,
+                                List<Translation> translations, int from, int to) {
+            this.fallback = fallback;
+            this.fallbackProfiles = fallbackProfiles;
+            this.translations = translations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected EnumMap<Notability, List<String>> compute() {
+            if (to - from > THRESHOLD) {
+                final int middle = (from + to) >>> 1;
+                final RangeValidation upper = new RangeValidation(fallback, fallbackProfiles, translations, middle, to);
+                upper.fork();
+                final EnumMap<Notability, List<String>> result =
+                        new RangeValidation(fallback, fallbackProfiles, translations, from, middle).compute();
+                // the upper range comes second, so keys stay ordered
+                upper.join().forEach((severity, keys) ->
+                        result.computeIfAbsent(severity, ignored -> new ArrayList<>()).addAll(keys));
+                return result;
+            }
+            final EnumMap<Notability, List<String>> result = new EnumMap<>(Notability.class);
+            for (int i = from; i < to; i++) {
+                final Translation translation = translations.get(i);
+                final int original = fallbackOf(translation.getKey(), i);
+                if (original < 0) {
+                    continue;
+                }
+                ValueProfile originalProfile = fallbackProfiles[original];
+                if (originalProfile == null) {
+                    originalProfile = ValueProfile.of(fallback.get(original).getValue());
+                    fallbackProfiles[original] = originalProfile;
+                }
+                final Notability notability = NotableData.assessNotability(originalProfile,
+                        ValueProfile.of(translation.getValue()));
+                if (notability != Notability.DEFAULT) {
+                    result.computeIfAbsent(notability, ignored -> new ArrayList<>()).add(translation.getKey());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Normalized locales have exactly the keys of the fallback, so the translation with the same key usually has
+         * the same position.
+         *
+         * @return The position of the fallback translation with the given key, -1 if there is none
+         */
+        private int fallbackOf(String key, int position) {
+            if (position < fallback.size() && fallback.get(position).getKey().equals(key)) {
+                return position;
+            }
+            int low = 0;
+            int high = fallback.size() - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int comparison = fallback.get(middle).getKey().compareTo(key);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.vogel612.helper.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a single folder for created and modified files on a background thread. Bursts of events are collected until
+ * the folder has been quiet for a short while, so a file that is written in multiple steps is only reported once.
+ */
+class FilesetWatcher implements Closeable {
+
+    private static final long SETTLE_MILLIS = 250;
+
+    private final Path folder;
+    private final WatchService service;
+    private final Consumer<Set<Path>> changeListener;
+    private final Thread thread;
+
+    /**
+     * Starts watching the given folder.
+     *
+     * @param folder
+     *         The folder to watch
+     * @param changeListener
+     *         Receives the files that were created or modified, called on the watching thread
+     *
+     * @throws IOException
+     *         In case the folder cannot be watched
+     */
+    FilesetWatcher(Path folder, Consumer<Set<Path>> changeListener) throws IOException {
+        this.folder = folder;
+        this.changeListener = changeListener;
+        this.service = folder.getFileSystem().newWatchService();
+        folder.register(service, ENTRY_CREATE, ENTRY_MODIFY);
+
+        thread = new Thread(this::watch, "Fileset-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    Path getFolder() {
+        return folder;
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = service.take();
+                while (key != null) {
+                    collect(key, changed);
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (!changed.isEmpty()) {
+                    changeListener.accept(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // we were closed
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events were lost, everything could have changed
+                try (Stream<Path> files = Files.list(folder)) {
+                    changed.addAll(files.collect(Collectors.toList()));
+                } catch (IOException e) {
+                    e.printStackTrace(System.err);
+                }
+            } else {
+                changed.add(folder.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        service.close();
+    }
+}
@@ -0,0 +1,228 @@
+package de.vogel612.helper.data;
+
+import java.util.Arrays;
+
+/**
+ * Static class to find the format items of .NET composite format strings, e.g. <tt>{0}</tt>, <tt>{1,-8}</tt> or
+ * <tt>{2:N2}</tt>. Escaped braces (<tt>{{</tt> and <tt>}}</tt>) are skipped. Strings are scanned by hand in a single
+ * pass, without allocating anything unless mismatching items are reported.
+ */
+public final class FormatItems {
+
+    private static final int[] NO_ARGUMENTS = new int[0];
+    /**
+     * Set in a summary if any item has an alignment or format, or an argument index too large for the summary. Items
+     * then have to be compared one by one.
+     */
+    static final long NEEDS_COMPARISON = 1L << 63;
+
+    private FormatItems() {
+    }
+
+    /**
+     * Checks whether two strings contain the same format items. How often and in which order the items occur does not
+     * matter.
+     *
+     * @param left
+     *         A format string, <tt>null</tt> counts as empty
+     * @param right
+     *         Another format string, <tt>null</tt> counts as empty
+     *
+     * @return True if every item of either string is also contained in the other one
+     */
+    public static boolean haveSameItems(String left, String right) {
+        final String l = left == null ? "" : left;
+        final String r = right == null ? "" : right;
+        final long leftSummary = summarize(l);
+        final long rightSummary = summarize(r);
+        if ((leftSummary & ~NEEDS_COMPARISON) != (rightSummary & ~NEEDS_COMPARISON)) {
+            return false;
+        }
+        if (((leftSummary | rightSummary) & NEEDS_COMPARISON) == 0) {
+            // only plain items with the same arguments
+            return true;
+        }
+        return containsAllItems(l, r) && containsAllItems(r, l);
+    }
+
+    /**
+     * Finds the arguments whose format items differ between two strings.
+     *
+     * @param left
+     *         A format string, <tt>null</tt> counts as empty
+     * @param right
+     *         Another format string, <tt>null</tt> counts as empty
+     *
+     * @return The sorted argument indices of all items that are contained in only one of the strings, empty if
+     * {@link #haveSameItems(String, String)} holds
+     */
+    public static int[] mismatchingArguments(String left, String right) {
+        final String l = left == null ? "" : left;
+        final String r = right == null ? "" : right;
+        if (haveSameItems(l, r)) {
+            return NO_ARGUMENTS;
+        }
+        int[] mismatches = new int[4];
+        int count = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            final String source = pass == 0 ? l : r;
+            final String other = pass == 0 ? r : l;
+            for (long item = nextItem(source, 0); item >= 0; item = nextItem(source, end(item))) {
+                if (!contains(other, source, start(item), end(item))) {
+                    if (count == mismatches.length) {
+                        mismatches = Arrays.copyOf(mismatches, count * 2);
+                    }
+                    mismatches[count++] = argumentOf(source, start(item));
+                }
+            }
+        }
+        Arrays.sort(mismatches, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || mismatches[distinct - 1] != mismatches[i]) {
+                mismatches[distinct++] = mismatches[i];
+            }
+        }
+        return Arrays.copyOf(mismatches, distinct);
+    }
+
+    /**
+     * Sets a bit for every argument index below 63 that occurs in the string, and {@link #NEEDS_COMPARISON} if items
+     * cannot be compared by their argument alone.
+     */
+    private static long summarize(String s) {
+        long summary = 0;
+        for (long item = nextItem(s, 0); item >= 0; item = nextItem(s, end(item))) {
+            summary |= summarize(s, start(item), end(item));
+        }
+        return summary;
+    }
+
+    /**
+     * @return The summary of the single item <tt>s[start, end)</tt>
+     */
+    static long summarize(String s, int start, int end) {
+        final int argument = argumentOf(s, start);
+        int digitsEnd = start + 1;
+        while (isAsciiDigit(s.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        long summary = argument < 0 || argument >= 63 || digitsEnd != end - 1 ? NEEDS_COMPARISON : 0;
+        if (argument >= 0 && argument < 63) {
+            summary |= 1L << argument;
+        }
+        return summary;
+    }
+
+    private static boolean containsAllItems(String source, String other) {
+        for (long item = nextItem(source, 0); item >= 0; item = nextItem(source, end(item))) {
+            if (!contains(other, source, start(item), end(item))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if the given string contains an item with the same text as <tt>source[start, end)</tt>
+     */
+    private static boolean contains(String s, String source, int start, int end) {
+        final int length = end - start;
+        for (long item = nextItem(s, 0); item >= 0; item = nextItem(s, end(item))) {
+            if (end(item) - start(item) == length && s.regionMatches(start(item), source, start, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the next format item, starting at the given position. An item is an unescaped <tt>{</tt>, followed by the
+     * argument index, an optional alignment introduced by <tt>,</tt>, an optional format introduced by <tt>:</tt> and
+     * the closing <tt>}</tt>.
+     *
+     * @return The start and end of the item packed into a long (see {@link #start(long)} and {@link #end(long)}), -1
+     * if there are no more items
+     */
+    static long nextItem(String s, int from) {
+        final int length = s.length();
+        int i = from;
+        while (i < length) {
+            final char c = s.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < length && s.charAt(i + 1) == c) {
+                // escaped brace
+                i += 2;
+                continue;
+            }
+            final int end = c == '{' ? itemEnd(s, i) : -1;
+            if (end >= 0) {
+                return ((long) i << 32) | end;
+            }
+            // a single closing brace is malformed, skip it just like any other character
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a format item starts at the given position, which must hold an opening brace that is not
+     * followed by another one.
+     *
+     * @return The position after the closing brace of the item, -1 if there is no item at the given position
+     */
+    static int itemEnd(String s, int start) {
+        final int length = s.length();
+        int j = start + 1;
+        while (j < length && isAsciiDigit(s.charAt(j))) {
+            j++;
+        }
+        if (j == start + 1) {
+            return -1;
+        }
+        if (j < length && s.charAt(j) == ',') {
+            j++;
+            if (j < length && s.charAt(j) == '-') {
+                j++;
+            }
+            final int alignment = j;
+            while (j < length && isAsciiDigit(s.charAt(j))) {
+                j++;
+            }
+            if (j == alignment) {
+                return -1;
+            }
+        }
+        if (j < length && s.charAt(j) == ':') {
+            while (j < length && s.charAt(j) != '}') {
+                j++;
+            }
+        }
+        return j < length && s.charAt(j) == '}' ? j + 1 : -1;
+    }
+
+    static int start(long item) {
+        return (int) (item >>> 32);
+    }
+
+    static int end(long item) {
+        return (int) item;
+    }
+
+    /**
+     * @return The argument index of the item starting at the given position, -1 if it is too large for an int
+     */
+    static int argumentOf(String s, int start) {
+        int argument = 0;
+        for (int i = start + 1; isAsciiDigit(s.charAt(i)); i++) {
+            if (argument > (Integer.MAX_VALUE - 9) / 10) {
+                return -1;
+            }
+            argument = argument * 10 + s.charAt(i) - '0';
+        }
+        return argument;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
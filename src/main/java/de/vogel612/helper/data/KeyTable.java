@@ -0,0 +1,113 @@
+package de.vogel612.helper.data;
+
+import java.util.*;
+
+/**
+ * An immutable, sorted table of translation keys. Every key has an ordinal, its position in the table. The values of
+ * a {@link ResourceFile} are stored in an array indexed by these ordinals, so that all locales of a fileset can share a
+ * single table and store every key only once.
+ */
+final class KeyTable {
+
+    private final String[] keys;
+    /**
+     * Only built on the first lookup by key, most tables are only walked in order.
+     */
+    private volatile Map<String, Integer> ordinals;
+
+    private KeyTable(String[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Creates a table of the given keys
+     *
+     * @param keys
+     *         The keys of the table. Duplicates are removed
+     *
+     * @return A table containing the given keys in their natural order
+     */
+    static KeyTable of(Collection<String> keys) {
+        final String[] sorted = new TreeSet<>(keys).toArray(new String[0]);
+        return new KeyTable(sorted);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    String get(int ordinal) {
+        return keys[ordinal];
+    }
+
+    /**
+     * @return The ordinal of the given key, -1 if the key is not in this table
+     */
+    int indexOf(String key) {
+        Map<String, Integer> lookup = ordinals;
+        if (lookup == null) {
+            lookup = new HashMap<>(keys.length * 4 / 3 + 1);
+            for (int i = 0; i < keys.length; i++) {
+                lookup.put(keys[i], i);
+            }
+            ordinals = lookup;
+        }
+        final Integer ordinal = lookup.get(key);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Maps every key of the given table to its ordinal in this table. Both tables are walked once in order, without any
+     * lookups.
+     *
+     * @param target
+     *         The table to map the keys of
+     *
+     * @return An array containing the ordinal in this table for every ordinal of the target, -1 for keys that are not
+     * in this table
+     */
+    int[] mapTo(KeyTable target) {
+        final int[] mapping = new int[target.keys.length];
+        int own = 0;
+        for (int i = 0; i < mapping.length; i++) {
+            while (own < keys.length && keys[own].compareTo(target.keys[i]) < 0) {
+                own++;
+            }
+            mapping[i] = own < keys.length && keys[own].equals(target.keys[i]) ? own : -1;
+        }
+        return mapping;
+    }
+
+    /**
+     * @return A rough estimate of the heap used by this table in bytes
+     */
+    long estimateHeapSize() {
+        long size = 16 + 8L * keys.length;
+        for (String key : keys) {
+            size += 40 + 2L * key.length();
+        }
+        return ordinals == null ? size : size + 48L * keys.length;
+    }
+
+    /**
+     * @return An unmodifiable view of the keys in this table
+     */
+    Set<String> asSet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return Collections.unmodifiableList(Arrays.asList(keys)).iterator();
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && indexOf((String) o) >= 0;
+            }
+        };
+    }
+}
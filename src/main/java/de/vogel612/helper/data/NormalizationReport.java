@@ -0,0 +1,60 @@
+package de.vogel612.helper.data;
+
+import java.util.*;
+
+/**
+ * Summarizes a normalization of the locales of a fileset against its fallback locale: how many keys were added to and
+ * dropped from every locale.
+ */
+public class NormalizationReport {
+    private final Map<String, Integer> addedKeys = new TreeMap<>();
+    private final Map<String, Integer> droppedKeys = new TreeMap<>();
+    private final List<TranslationChangeEvent.Change> changes = new ArrayList<>();
+
+    void record(String locale, int added, int dropped, List<TranslationChangeEvent.Change> localChanges) {
+        addedKeys.merge(locale, added, Integer::sum);
+        droppedKeys.merge(locale, dropped, Integer::sum);
+        changes.addAll(localChanges);
+    }
+
+    /**
+     * @return The normalized locales, in their natural order
+     */
+    public Set<String> getLocales() {
+        return Collections.unmodifiableSet(addedKeys.keySet());
+    }
+
+    public int getAddedKeys(String locale) {
+        return addedKeys.getOrDefault(locale, 0);
+    }
+
+    public int getDroppedKeys(String locale) {
+        return droppedKeys.getOrDefault(locale, 0);
+    }
+
+    /**
+     * @return The number of keys added across all locales
+     */
+    public int getAddedKeys() {
+        return addedKeys.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return The number of keys dropped across all locales
+     */
+    public int getDroppedKeys() {
+        return droppedKeys.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return The added and dropped translations, grouped by locale
+     */
+    List<TranslationChangeEvent.Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    @Override
+    public String toString() {
+        return "NormalizationReport [added=" + addedKeys + ", dropped=" + droppedKeys + "]";
+    }
+}
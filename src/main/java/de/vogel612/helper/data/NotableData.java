@@ -2,57 +2,92 @@ package de.vogel612.helper.data;
 
 import de.vogel612.helper.ui.jfx.TranslationPair;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
 
 /**
- * Static class to help assess "Notability" of data-combinations.
+ * Static class to help assess "Notability" of data-combinations. Every pair of values is profiled once (see
+ * {@link ValueProfile}), then all enabled {@link ValidationRule ValidationRules} assess the profiles and the most severe
+ * result wins. By default all {@link BuiltInRule built-in rules} and all rules found by the {@link ServiceLoader} are
+ * enabled.
  * Following are {@link Notability#ERROR ERROR}-Notabilities:
- * <ul><li>C# Format specifiers are mismatching for left and right</li></ul>
+ * <ul><li>C# Format specifiers are mismatching for left and right, see {@link FormatItems}</li>
+ * <li>Tags of the right value are not balanced, although those of the left value are</li></ul>
  * Following are {@link Notability#WARNING WARNING}-Notabilities:
- * <ul><li>Any value is an empty String</li><li>Values on both sides match</li></ul>
+ * <ul><li>Any value is an empty String</li><li>Values on both sides match</li><li>Tags differ</li>
+ * <li>Only one value starts or ends with whitespace</li><li>The number of accelerator keys differs</li>
+ * <li>The number of lines differs</li></ul>
  * Following are {@link Notability#INFO INFO}-Notabilites:
- * <ul><li></li></ul>
+ * <ul><li>The length of the values differs by more than a factor of three</li></ul>
  * Any other Data is considered {@link Notability#DEFAULT DEFAULT}
  */
 public class NotableData {
 
-    private static final String FORMAT_FINDER = "(?<!\\{)\\{(?:\\{\\{)*((?:\\d+)(?::.*?)?)}(?:}})*(?!})";
-    private static final Pattern FORMAT_PATTERN = Pattern.compile(FORMAT_FINDER, Pattern.MULTILINE);
+    private static volatile List<ValidationRule> rules = availableRules();
 
     public enum Notability {
         DEFAULT, INFO, WARNING, ERROR
     }
 
+    /**
+     * @return The built-in rules followed by all rules found by the {@link ServiceLoader}
+     */
+    public static List<ValidationRule> availableRules() {
+        final List<ValidationRule> available = new ArrayList<>(Arrays.asList(BuiltInRule.values()));
+        ServiceLoader.load(ValidationRule.class).forEach(available::add);
+        return Collections.unmodifiableList(available);
+    }
+
+    /**
+     * @return The rules that are currently enabled, in the order they are run
+     */
+    public static List<ValidationRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Sets the rules that assess values from now on. Pairs that were already assessed are not assessed again.
+     *
+     * @param enabled
+     *         The rules to run, in the order they are run
+     */
+    public static void setRules(Collection<? extends ValidationRule> enabled) {
+        rules = Collections.unmodifiableList(new ArrayList<>(enabled));
+    }
+
+    /**
+     * @return The notability of the given pair, which is only assessed once per pair
+     */
     public static Notability assessNotability(TranslationPair pair) {
-        return assessNotability(pair.getLeft(), pair.getRight());
+        return pair.getNotability();
     }
 
     public static Notability assessNotability(Translation left, Translation right) {
-        final Set<String> leftFormats = getFormatSpecifiers(left.toString());
-        final Set<String> rightFormats = getFormatSpecifiers(right.toString());
-
-        if (!(leftFormats.containsAll(rightFormats) && rightFormats.containsAll(leftFormats))) {
-            return Notability.ERROR;
-        }
-        if (right.getValue().isEmpty() || left.getValue().isEmpty()) {
-            return Notability.WARNING;
-        }
-        if (left.equals(right)) {
-            return Notability.WARNING;
-        }
-        return Notability.DEFAULT;
+        // only the values are checked, keys and locales are never shown
+        return assessNotability(ValueProfile.of(left.getValue()), ValueProfile.of(right.getValue()));
     }
 
-    private static Set<String> getFormatSpecifiers(String s) {
-        final Matcher m = FORMAT_PATTERN.matcher(s);
-        final Set<String> result = new HashSet<>();
-        while (m.find()) {
-            result.add(m.group());
+    /**
+     * Assesses a pair of profiled values with all enabled rules. Profiles can be reused for many pairs, e.g. those of
+     * the fallback locale when validating all locales of a fileset.
+     *
+     * @param left
+     *         The profile of the original value
+     * @param right
+     *         The profile of the translated value
+     *
+     * @return The most severe notability any rule assessed
+     */
+    public static Notability assessNotability(ValueProfile left, ValueProfile right) {
+        Notability result = Notability.DEFAULT;
+        for (ValidationRule rule : rules) {
+            final Notability notability = rule.assess(left, right);
+            if (notability.compareTo(result) > 0) {
+                result = notability;
+                if (result == Notability.ERROR) {
+                    break;
+                }
+            }
         }
         return result;
     }
-
 }
@@ -26,6 +26,10 @@ public class Project {
         associatedResources.add(resource);
     }
 
+    public void associateAll(Collection<ResourceSet> resources) {
+        resources.forEach(this::associate);
+    }
+
     public void disassociate(ResourceSet resource) {
         associatedResources.remove(resource);
     }
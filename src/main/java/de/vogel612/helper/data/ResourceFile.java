@@ -2,16 +2,19 @@ package de.vogel612.helper.data;
 
 import de.vogel612.helper.data.util.DataUtilities;
 import de.vogel612.helper.data.util.ResourceFileSerializer;
+import de.vogel612.helper.data.util.ResxLayout;
 import de.vogel612.helper.data.util.Serialization;
+import de.vogel612.helper.data.util.WriteTiming;
 import org.jdom2.Document;
+import org.jdom2.Element;
 import org.jdom2.JDOMException;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -19,13 +22,54 @@ import java.util.stream.Stream;
  */
 public class ResourceFile {
 
-    private static final ExecutorService backgroundPropagator = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "BG-Propagator"));
-    private final Document associatedDocument;
-
     private final String name;
     private final String locale;
     private final Path folder;
-    private final Map<String, String> entries = new HashMap<>();
+    /**
+     * The keys of this file, in their natural order. Shared with the other locales of the fileset once normalized.
+     */
+    private KeyTable keys;
+    /**
+     * The translations of this file, indexed by the ordinals of their keys in {@link #keys}.
+     */
+    private String[] values;
+    /**
+     * The translations in the order of {@link #keys} as they were last handed out. Never modified once handed out; the
+     * next snapshot reuses the translations that did not change since. Dropped when the keys change.
+     */
+    private Translation[] ordered;
+    /**
+     * The view of {@link #ordered}, <tt>null</tt> if translations changed since it was handed out.
+     */
+    private List<Translation> orderedView;
+    /**
+     * Translations changed since the document was last written, in order of their first change.
+     */
+    private final Map<String, String> pendingChanges = new LinkedHashMap<>();
+    /**
+     * The values on disk of the translations in {@link #pendingChanges}, <tt>null</tt> for added translations.
+     */
+    private final Map<String, String> originalValues = new HashMap<>();
+    /**
+     * The value of {@link System#nanoTime()} when the oldest of the {@link #pendingChanges} was made.
+     */
+    private long pendingSince;
+
+    /**
+     * The raw content of the file as it was last read or written. Only kept until the document is built.
+     */
+    private byte[] source;
+    /**
+     * The positions of all values in the source, <tt>null</tt> if the source cannot be patched.
+     */
+    private ResxLayout layout;
+    private Document associatedDocument;
+    private Map<String, Element> valueElements;
+    /**
+     * Size and modification time of the file when it was last read or written by us.
+     */
+    private volatile long diskSize = -1;
+    private volatile long diskModified = -1;
 
     public ResourceFile(final Path filePath) {
         Objects.requireNonNull(filePath, "filePath");
@@ -34,45 +78,387 @@ public class ResourceFile {
         name = DataUtilities.getFileIdentifier(filePath);
         locale = DataUtilities.getFileLocale(filePath);
         try {
-            associatedDocument = Serialization.parseFile(filePath);
-        } catch (IOException | JDOMException e) {
+            rememberDiskState(filePath);
+            source = Files.readAllBytes(filePath);
+            final Map<String, String> parsed = new HashMap<>();
+            layout = ResourceFileSerializer.deserialize(source, parsed);
+            bind(parsed);
+        } catch (IOException | XMLStreamException e) {
             e.printStackTrace(System.err);
             throw new RuntimeException(e);
         }
-        entries.putAll(ResourceFileSerializer.deserializeToMap(associatedDocument));
+    }
+
+    /**
+     * Creates a ResourceFile from previously parsed entries without reading the file. The content of the file is only
+     * read once it is saved.
+     *
+     * @param filePath
+     *         The path of the file the entries belong to
+     * @param parsedEntries
+     *         The keys and values of the file
+     */
+    ResourceFile(final Path filePath, final Map<String, String> parsedEntries) {
+        Objects.requireNonNull(filePath, "filePath");
+
+        folder = filePath.getParent();
+        name = DataUtilities.getFileIdentifier(filePath);
+        locale = DataUtilities.getFileLocale(filePath);
+        bind(parsedEntries);
+        try {
+            rememberDiskState(filePath);
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void bind(Map<String, String> entries) {
+        keys = KeyTable.of(entries.keySet());
+        values = new String[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = entries.get(keys.get(i));
+        }
+        ordered = null;
+        orderedView = null;
     }
 
     public void updateTranslation(String key, String value) {
-        entries.put(key, value);
-        backgroundPropagator.submit(() -> ResourceFileSerializer.getValueElement(associatedDocument, key).setText(value));
+        final int ordinal = keys.indexOf(key);
+        if (ordinal >= 0 && Objects.equals(values[ordinal], value)) {
+            return;
+        }
+        if (!pendingChanges.containsKey(key)) {
+            originalValues.put(key, ordinal < 0 ? null : values[ordinal]);
+        }
+        if (ordinal < 0) {
+            // keys outside of the table are rare, they get a table of their own until the next normalization
+            final Map<String, String> grown = getEntries();
+            grown.put(key, value);
+            bind(grown);
+        } else {
+            values[ordinal] = value;
+            // snapshots handed out stay as they are
+            orderedView = null;
+            if (value != null && value.equals(originalValues.get(key))) {
+                // changed back to the value on disk, e.g. by undoing, so there is nothing left to write
+                pendingChanges.remove(key);
+                originalValues.remove(key);
+                return;
+            }
+        }
+        queueChange(key, value);
     }
 
-    public List<Translation> orderedTranslations() {
-        return entries.entrySet().stream()
-                .map(entry -> new Translation(locale, entry.getKey(), entry.getValue()))
-                .sorted(Comparator.comparing(Translation::getKey))
-                .collect(Collectors.toList());
+    /**
+     * Records a change to be written with the next save. Repeated changes of the same key replace each other, so only
+     * the latest value is written.
+     */
+    private void queueChange(String key, String value) {
+        if (pendingChanges.isEmpty()) {
+            pendingSince = System.nanoTime();
+        }
+        pendingChanges.put(key, value);
+    }
+
+    /**
+     * Returns a snapshot of the translations of this file ordered by their key. The order is given by the key table, so
+     * nothing is sorted here. Snapshots never change once they were returned; callers get the same snapshot until a
+     * translation changes, and the next one only creates translations for the values that changed since.
+     *
+     * @return An unmodifiable snapshot of all translations, ordered by their key
+     */
+    public synchronized List<Translation> orderedTranslations() {
+        if (orderedView == null) {
+            final Translation[] previous = ordered;
+            final Translation[] current = new Translation[values.length];
+            for (int i = 0; i < values.length; i++) {
+                current[i] = previous != null && previous[i].getValue() == values[i]
+                        ? previous[i]
+                        : new Translation(locale, keys.get(i), values[i]);
+            }
+            ordered = current;
+            orderedView = Collections.unmodifiableList(Arrays.asList(current));
+        }
+        return orderedView;
     }
 
     public void normalize(Set<String> keys, ResourceFile canonical) {
         if (canonical == this) {
             return;
         }
-        entries.keySet().removeIf(key -> !keys.contains(key));
-        keys.stream().filter(key -> !entries.containsKey(key))
-                .forEach(missing -> {
-                    final String canonicalTranslation = canonical.getTranslation(missing);
-                    associatedDocument.getRootElement().addContent(ResourceFileSerializer.createNewElement(missing, canonicalTranslation));
-                    updateTranslation(missing, canonicalTranslation);
-                });
+        normalize(KeyTable.of(keys), canonical, new NormalizationReport());
     }
 
-    public void save() throws IOException {
-        Serialization.serializeDocument(associatedDocument, folder.resolve(DataUtilities.fileNameString(name, locale)));
+    /**
+     * Makes this file contain exactly the keys of the given table. The table is used to store the keys from then on,
+     * so all files normalized with the same table share it. The keys to add and drop are determined in a single pass
+     * over both tables; missing translations are taken from the canonical file and recorded as one batch of pending
+     * changes, which is written to the document when saving.
+     *
+     * @param table
+     *         The keys this file should contain
+     * @param canonical
+     *         The file to take missing translations from
+     * @param report
+     *         The report to record the added and dropped translations in
+     */
+    void normalize(KeyTable table, ResourceFile canonical, NormalizationReport report) {
+        if (table == keys) {
+            report.record(locale, 0, 0, Collections.emptyList());
+            return;
+        }
+        final List<TranslationChangeEvent.Change> changes = new ArrayList<>();
+        final int[] kept = table.mapTo(keys);
+        for (int i = 0; i < kept.length; i++) {
+            if (kept[i] < 0) {
+                changes.add(new TranslationChangeEvent.Change(locale, keys.get(i), values[i], null));
+            }
+        }
+        final int dropped = changes.size();
+        final int[] mapping = keys.mapTo(table);
+        final String[] rebound = new String[table.size()];
+        for (int i = 0; i < rebound.length; i++) {
+            if (mapping[i] >= 0) {
+                rebound[i] = values[mapping[i]];
+            }
+        }
+        keys = table;
+        values = rebound;
+        ordered = null;
+        orderedView = null;
+        if (canonical != this) {
+            for (int i = 0; i < rebound.length; i++) {
+                if (mapping[i] >= 0) {
+                    continue;
+                }
+                final String key = table.get(i);
+                if (!pendingChanges.containsKey(key)) {
+                    originalValues.put(key, null);
+                }
+                values[i] = canonical.getTranslation(key);
+                queueChange(key, values[i]);
+                changes.add(new TranslationChangeEvent.Change(locale, key, null, values[i]));
+            }
+        }
+        report.record(locale, changes.size() - dropped, dropped, changes);
+    }
+
+    public WriteTiming save() throws IOException {
+        return save(SaveMode.REFORMAT, true);
+    }
+
+    /**
+     * Writes all changes of this file to disk. The file is replaced atomically, so it is never left partially written.
+     *
+     * @param mode
+     *         How the file is written. Once a file has been reformatted, it is always reformatted
+     * @param sync
+     *         Whether the written file is forced to the storage device before it replaces the original
+     *
+     * @return The timings of writing the file
+     *
+     * @throws IOException
+     *         In case the file could not be written
+     */
+    public WriteTiming save(SaveMode mode, boolean sync) throws IOException {
+        final Path file = folder.resolve(DataUtilities.fileNameString(name, locale));
+        loadSource();
+        final WriteTiming timing;
+        if (mode == SaveMode.PRESERVE_FORMATTING && associatedDocument == null && layout != null) {
+            final byte[] patched = layout.patch(pendingChanges);
+            timing = Serialization.writeAtomically(file, sync, output -> output.write(patched));
+            source = patched;
+            try {
+                layout = ResourceFileSerializer.deserialize(patched, new HashMap<>());
+            } catch (XMLStreamException e) {
+                throw new IOException("Patching " + file + " produced malformed XML", e);
+            }
+        } else {
+            final Document document = getDocument();
+            ResourceFileSerializer.setValues(document, valueElements, pendingChanges);
+            timing = Serialization.serializeDocument(document, file, sync);
+        }
+        pendingChanges.clear();
+        originalValues.clear();
+        rememberDiskState(file);
+        return timing;
     }
 
+    /**
+     * Merges the content of this file as it was re-read from disk into this file. Translations without unsaved changes
+     * take the values from disk. Translations with unsaved changes keep them; if their value on disk changed since it
+     * was read, they are reported as conflicting.
+     *
+     * @param reread
+     *         The same file, freshly read from disk
+     *
+     * @return The keys of conflicting translations
+     */
+    Set<String> mergeFrom(ResourceFile reread) {
+        final Set<String> conflicts = new LinkedHashSet<>();
+        for (String key : pendingChanges.keySet()) {
+            final String onDisk = reread.getTranslation(key);
+            if (!Objects.equals(originalValues.get(key), onDisk)) {
+                conflicts.add(key);
+                // only report the conflict once
+                originalValues.put(key, onDisk);
+            }
+        }
+        final Map<String, String> merged = reread.getEntries();
+        merged.putAll(pendingChanges);
+        bind(merged);
+
+        source = reread.source;
+        layout = reread.layout;
+        associatedDocument = null;
+        valueElements = null;
+        diskSize = reread.diskSize;
+        diskModified = reread.diskModified;
+        return conflicts;
+    }
+
+    /**
+     * Checks whether the file on disk still has the size and modification time it had when this instance last read or
+     * wrote it. Safe to call from any thread.
+     *
+     * @return True if the file seems to be unchanged since then
+     */
+    boolean isUnchangedOnDisk() {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(
+                    folder.resolve(DataUtilities.fileNameString(name, locale)), BasicFileAttributes.class);
+            return attributes.size() == diskSize && attributes.lastModifiedTime().toMillis() == diskModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void rememberDiskState(Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        diskSize = attributes.size();
+        diskModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Reads the content of the file, if it was neither read on creation nor turned into a document yet.
+     */
+    private void loadSource() throws IOException {
+        if (source != null || associatedDocument != null) {
+            return;
+        }
+        final Path file = folder.resolve(DataUtilities.fileNameString(name, locale));
+        source = Files.readAllBytes(file);
+        try {
+            layout = ResourceFileSerializer.deserialize(source, new HashMap<>());
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read " + file, e);
+        }
+    }
+
+    /**
+     * Builds the document and its index of value elements from the original content on first use. Reading a file
+     * only fills the entries, so the document is only ever built for files that are actually saved.
+     */
+    private Document getDocument() throws IOException {
+        if (associatedDocument == null) {
+            loadSource();
+            try {
+                associatedDocument = Serialization.parseBytes(source);
+                valueElements = ResourceFileSerializer.indexValueElements(associatedDocument);
+            } catch (JDOMException e) {
+                throw new IOException("Could not build document for " + DataUtilities.fileNameString(name, locale), e);
+            }
+            source = null;
+            layout = null;
+        }
+        return associatedDocument;
+    }
+
+    /**
+     * Checks whether this file has changes that have not been saved yet.
+     *
+     * @return True if any translation was changed or added since the last save
+     */
+    public boolean isDirty() {
+        return !pendingChanges.isEmpty();
+    }
+
+    /**
+     * Returns the keys of all translations that were changed or added since the last save.
+     *
+     * @return An unmodifiable copy of the changed keys, in order of their first change
+     */
+    public Set<String> getChangedKeys() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(pendingChanges.keySet()));
+    }
+
+    /**
+     * @return The number of translations waiting to be written by the next save
+     */
+    public int getPendingChangeCount() {
+        return pendingChanges.size();
+    }
+
+    /**
+     * @return How long the oldest unsaved change has been waiting to be written in nanoseconds, 0 if there is none
+     */
+    public long getPendingChangeAge() {
+        return pendingChanges.isEmpty() ? 0 : System.nanoTime() - pendingSince;
+    }
+
+    /**
+     * @return A modifiable copy of all keys and values of this file
+     */
+    Map<String, String> getEntries() {
+        final Map<String, String> entries = new HashMap<>(values.length * 4 / 3 + 1);
+        for (int i = 0; i < values.length; i++) {
+            entries.put(keys.get(i), values[i]);
+        }
+        return entries;
+    }
+
+    /**
+     * @return A rough estimate of the heap used by this file in bytes, not counting its key table
+     */
+    long estimateHeapSize() {
+        long size = 128 + 8L * values.length;
+        for (String value : values) {
+            if (value != null) {
+                size += 40 + 2L * value.length();
+            }
+        }
+        if (ordered != null) {
+            size += 40L * ordered.length;
+        }
+        if (source != null) {
+            size += source.length;
+        }
+        if (associatedDocument != null) {
+            // elements, attributes and texts of every entry
+            size += 400L * values.length;
+        }
+        return size;
+    }
+
+    /**
+     * @return The table of the keys of this file
+     */
+    KeyTable getKeyTable() {
+        return keys;
+    }
+
+    /**
+     * Returns the translation of the given key. Never fails on a file that is changed concurrently, so that it can be
+     * used for optimistic reads; the result is only meaningful if nothing changed in the meantime.
+     *
+     * @return The translation, <tt>null</tt> if the file has no such key
+     */
     public String getTranslation(String key) {
-        return entries.get(key);
+        final KeyTable table = keys;
+        final String[] current = values;
+        final int ordinal = table.indexOf(key);
+        return ordinal < 0 || ordinal >= current.length ? null : current[ordinal];
     }
 
     public String getName() {
@@ -88,7 +474,7 @@ public class ResourceFile {
     }
 
     public Set<String> getKeys() {
-        return entries.keySet();
+        return keys.asSet();
     }
 
     /**
@@ -125,7 +511,23 @@ public class ResourceFile {
      *         If any of the intermediate operations results in an IOException, said exception is propagated.
      */
     public static Stream<ResourceFile> getResourceFiles(ResourceSet resourceSet) throws IOException {
+        return getResourceFilePaths(resourceSet).map(ResourceFile::new);
+    }
+
+    /**
+     * Creates a Stream of the paths of all files belonging to a given ResourceSet without parsing them. In case some
+     * files are missing on the file system, they will be created as empty files.
+     *
+     * @param resourceSet
+     *         The resource set to obtain the file paths of
+     *
+     * @return A <tt>Stream&lt;Path&gt;</tt> containing the paths of all files belonging to the given ResourceSet
+     *
+     * @throws IOException
+     *         If any of the intermediate operations results in an IOException, said exception is propagated.
+     */
+    public static Stream<Path> getResourceFilePaths(ResourceSet resourceSet) throws IOException {
         resourceSet.files().filter(p -> !p.toFile().exists()).forEach(DataUtilities::createEmptyResourceFile);
-        return resourceSet.files().map(ResourceFile::new);
+        return resourceSet.files();
     }
 }
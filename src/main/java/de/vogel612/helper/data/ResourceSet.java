@@ -1,6 +1,7 @@
 package de.vogel612.helper.data;
 
 import de.vogel612.helper.data.util.DataUtilities;
+import de.vogel612.helper.data.util.DirectoryIndex;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -40,8 +41,7 @@ public class ResourceSet {
         try {
             final Path folder = file.getParent();
             final String name = DataUtilities.getFileIdentifier(file);
-            final Set<String> locales = DataUtilities.streamFileset(folder, name)
-                    .map(DataUtilities::getFileLocale)
+            final Set<String> locales = DirectoryIndex.of(folder).getFileset(name).keySet().stream()
                     .filter(l -> !l.equals(FALLBACK_LOCALE))
                     .collect(Collectors.toSet());
             return new ResourceSet(name, folder, locales);
@@ -83,8 +83,10 @@ public class ResourceSet {
     }
 
     public Stream<Path> files() throws IOException {
-        return DataUtilities.streamFileset(folder, name)
-                .filter(path -> getLocales().contains(DataUtilities.getFileLocale(path)));
+        final Set<String> wanted = getLocales();
+        return DirectoryIndex.of(folder).getFileset(name).entrySet().stream()
+                .filter(entry -> wanted.contains(entry.getKey()))
+                .map(Map.Entry::getValue);
     }
 
     @Override
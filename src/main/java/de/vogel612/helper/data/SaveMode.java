@@ -0,0 +1,16 @@
+package de.vogel612.helper.data;
+
+/**
+ * The ways a {@link ResourceFile} can be written back to disk.
+ */
+public enum SaveMode {
+    /**
+     * The whole document is written anew and pretty-printed.
+     */
+    REFORMAT,
+    /**
+     * Only changed values and added entries are written into the original content of the file, everything else is
+     * kept byte by byte. Files that cannot be patched safely are reformatted instead.
+     */
+    PRESERVE_FORMATTING
+}
@@ -0,0 +1,108 @@
+package de.vogel612.helper.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signals that translations in a {@link FilesetModel} changed. A single event can carry a whole batch of changes, e.g.
+ * all translations that were added to the locales of a fileset by normalizing them.
+ */
+public class TranslationChangeEvent {
+
+    /**
+     * What caused the translations to change
+     */
+    public enum Cause {
+        /**
+         * A single translation was updated through the model
+         */
+        EDIT,
+        /**
+         * A fileset was loaded and replaced all translations. Everything has to be fetched again; the changes are only
+         * those made by normalizing the loaded locales, which are already part of the loaded fileset
+         */
+        LOAD,
+        /**
+         * Translations were added to or dropped from locales to match the keys of the fallback locale
+         */
+        NORMALIZATION,
+        /**
+         * Files were changed on disk and merged into the model
+         */
+        EXTERNAL_CHANGE
+    }
+
+    /**
+     * The change of a single translation
+     */
+    public static final class Change {
+        private final String locale;
+        private final String key;
+        private final String oldValue;
+        private final String newValue;
+
+        public Change(final String locale, final String key, final String oldValue, final String newValue) {
+            this.locale = locale;
+            this.key = key;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        public String getLocale() {
+            return locale;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return The translation before the change, <tt>null</tt> for added translations
+         */
+        public String getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return The translation after the change, <tt>null</tt> for dropped translations
+         */
+        public String getNewValue() {
+            return newValue;
+        }
+
+        @Override
+        public String toString() {
+            return "Change [locale=" + locale + ", key=" + key + ", oldValue=" + oldValue + ", newValue=" + newValue + "]";
+        }
+    }
+
+    private final Cause cause;
+    private final boolean structural;
+    private final List<Change> changes;
+
+    public TranslationChangeEvent(final Cause cause, final boolean structural, final List<Change> changes) {
+        this.cause = cause;
+        this.structural = structural;
+        this.changes = Collections.unmodifiableList(new ArrayList<>(changes));
+    }
+
+    public Cause getCause() {
+        return cause;
+    }
+
+    /**
+     * @return True if keys were added to or removed from any locale, so that views need to rebuild their rows instead
+     * of updating single ones
+     */
+    public boolean isStructural() {
+        return structural;
+    }
+
+    /**
+     * @return The changed translations, in the order they were changed
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+}
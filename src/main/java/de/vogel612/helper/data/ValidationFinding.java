@@ -0,0 +1,135 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A single offending translation found when validating a {@link ResourceSet}, together with the rules it violates.
+ */
+public final class ValidationFinding {
+
+    private final String resourceSet;
+    private final Path file;
+    private final String locale;
+    private final String key;
+    private final Notability severity;
+    private final List<String> rules;
+    private final List<Integer> arguments;
+
+    public ValidationFinding(String resourceSet, Path file, String locale, String key, Notability severity,
+                             List<String> rules) {
+        this(resourceSet, file, locale, key, severity, rules, new int[0]);
+    }
+
+    public ValidationFinding(String resourceSet, Path file, String locale, String key, Notability severity,
+                             List<String> rules, int[] arguments) {
+        Objects.requireNonNull(resourceSet, "resourceSet");
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(locale, "locale");
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(severity, "severity");
+        this.resourceSet = resourceSet;
+        this.file = file;
+        this.locale = locale;
+        this.key = key;
+        this.severity = severity;
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        final List<Integer> indices = new ArrayList<>(arguments.length);
+        for (int argument : arguments) {
+            indices.add(argument);
+        }
+        this.arguments = Collections.unmodifiableList(indices);
+    }
+
+    /**
+     * Assesses a pair of values with every enabled rule and keeps the names of the rules that assessed the pair with
+     * the given severity. Only offending pairs are assessed again, so this is cheap compared to the validation.
+     *
+     * @param original
+     *         The value of the fallback locale
+     * @param translation
+     *         The translated value
+     * @param severity
+     *         The severity the pair was reported with
+     *
+     * @return The names of the rules responsible for the severity, in the order they are run
+     */
+    public static List<String> rulesAssessing(String original, String translation, Notability severity) {
+        final ValueProfile left = ValueProfile.of(original);
+        final ValueProfile right = ValueProfile.of(translation);
+        final List<String> responsible = new ArrayList<>();
+        for (ValidationRule rule : NotableData.getRules()) {
+            if (rule.assess(left, right) == severity) {
+                responsible.add(rule.getName());
+            }
+        }
+        return responsible;
+    }
+
+    /**
+     * Finds the format arguments to point out for a finding. Only the rule {@link BuiltInRule#FORMAT_SPECIFIERS}
+     * concerns arguments.
+     *
+     * @param original
+     *         The value of the fallback locale
+     * @param translation
+     *         The translated value
+     * @param rules
+     *         The names of the rules responsible for the finding, see {@link #rulesAssessing(String, String,
+     *         Notability)}
+     *
+     * @return The sorted indices of the arguments whose format items differ, empty if the format items are not at fault
+     */
+    public static int[] argumentsAssessed(String original, String translation, List<String> rules) {
+        return rules.contains(BuiltInRule.FORMAT_SPECIFIERS.getName())
+                ? FormatItems.mismatchingArguments(original, translation)
+                : new int[0];
+    }
+
+    public String getResourceSet() {
+        return resourceSet;
+    }
+
+    /**
+     * @return The file of the locale the translation belongs to. It does not exist if the locale is declared, but
+     * has no file yet
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Notability getSeverity() {
+        return severity;
+    }
+
+    public List<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return The sorted indices of the format arguments whose items differ between both values, empty unless the
+     * format items are at fault
+     */
+    public List<Integer> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationFinding [" + severity + " " + resourceSet + "[" + locale + "]:" + key + " " + rules
+                + (arguments.isEmpty() ? "" : " " + arguments) + "]";
+    }
+}
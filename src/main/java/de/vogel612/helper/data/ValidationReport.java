@@ -0,0 +1,57 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+
+import java.util.*;
+
+/**
+ * The result of validating all locales of a fileset against its fallback locale: for every locale and severity, the
+ * keys of the offending translations. Translations of {@link Notability#DEFAULT DEFAULT} notability are not recorded.
+ */
+public final class ValidationReport {
+
+    private final Map<String, EnumMap<Notability, List<String>>> offendingKeys;
+
+    ValidationReport(Map<String, EnumMap<Notability, List<String>>> offendingKeys) {
+        this.offendingKeys = new TreeMap<>(offendingKeys);
+    }
+
+    /**
+     * @return The validated locales, in their natural order
+     */
+    public Set<String> getLocales() {
+        return Collections.unmodifiableSet(offendingKeys.keySet());
+    }
+
+    /**
+     * @return The keys of the translations of the given locale with the given severity, ordered by key
+     */
+    public List<String> getKeys(String locale, Notability severity) {
+        final EnumMap<Notability, List<String>> keys = offendingKeys.get(locale);
+        if (keys == null || !keys.containsKey(severity)) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(keys.get(severity));
+    }
+
+    public int getCount(String locale, Notability severity) {
+        return getKeys(locale, severity).size();
+    }
+
+    /**
+     * @return The number of translations with the given severity across all locales
+     */
+    public int getCount(Notability severity) {
+        int count = 0;
+        for (String locale : offendingKeys.keySet()) {
+            count += getCount(locale, severity);
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationReport [errors=" + getCount(Notability.ERROR) + ", warnings=" + getCount(Notability.WARNING)
+                + ", locales=" + offendingKeys.keySet() + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+
+/**
+ * A check of a translation against the translation it was made from. Rules compare the {@link ValueProfile profiles}
+ * of both values, which are collected once for all rules.
+ * <p>
+ * Besides the {@link BuiltInRule built-in rules}, rules are discovered with the {@link java.util.ServiceLoader}, by
+ * listing their implementations in <tt>META-INF/services/de.vogel612.helper.data.ValidationRule</tt>.
+ * </p>
+ */
+public interface ValidationRule {
+
+    /**
+     * @return A unique name of the rule, used to enable and disable it
+     */
+    String getName();
+
+    /**
+     * Assesses a pair of translations.
+     *
+     * @param original
+     *         The profile of the value that was translated, usually the fallback
+     * @param translation
+     *         The profile of the translated value
+     *
+     * @return How notable the pair is according to this rule, {@link Notability#DEFAULT DEFAULT} if the rule does
+     * not apply
+     */
+    Notability assess(ValueProfile original, ValueProfile translation);
+}
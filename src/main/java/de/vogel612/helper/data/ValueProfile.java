@@ -0,0 +1,229 @@
+package de.vogel612.helper.data;
+
+/**
+ * Everything {@link ValidationRule ValidationRules} need to know about a translated value, collected in a single pass
+ * over the value. Rules only compare profiles, so no rule has to scan the value again.
+ */
+public final class ValueProfile {
+
+    private static final ValueProfile EMPTY = of("");
+
+    private final String value;
+    private final int leadingWhitespace;
+    private final int trailingWhitespace;
+    private final int newlines;
+    private final int accelerators;
+    private final int tags;
+    private final long tagSignature;
+    private final boolean tagsBalanced;
+    private final long formatSummary;
+
+    private ValueProfile(String value, int leadingWhitespace, int trailingWhitespace, int newlines, int accelerators,
+                         int tags, long tagSignature, boolean tagsBalanced, long formatSummary) {
+        this.value = value;
+        this.leadingWhitespace = leadingWhitespace;
+        this.trailingWhitespace = trailingWhitespace;
+        this.newlines = newlines;
+        this.accelerators = accelerators;
+        this.tags = tags;
+        this.tagSignature = tagSignature;
+        this.tagsBalanced = tagsBalanced;
+        this.formatSummary = formatSummary;
+    }
+
+    /**
+     * Profiles the given value.
+     *
+     * @param value
+     *         The value to profile, <tt>null</tt> counts as empty
+     *
+     * @return The profile of the value
+     */
+    public static ValueProfile of(String value) {
+        if (value == null) {
+            return EMPTY;
+        }
+        final int length = value.length();
+        int firstContent = -1;
+        int lastContent = -1;
+        int newlines = 0;
+        int accelerators = 0;
+        int tags = 0;
+        long tagSignature = 0;
+        int depth = 0;
+        boolean balanced = true;
+        long formatSummary = 0;
+
+        int i = 0;
+        while (i < length) {
+            final char c = value.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                if (firstContent < 0) {
+                    firstContent = i;
+                }
+                lastContent = i;
+            }
+            // the characters skipped below are never whitespace
+            int next = i + 1;
+            switch (c) {
+                case '\n':
+                    newlines++;
+                    break;
+                case '&':
+                    if (next < length && value.charAt(next) == '&') {
+                        next++;
+                    } else if (next < length && Character.isLetterOrDigit(value.charAt(next))
+                            && !isEntity(value, i)) {
+                        accelerators++;
+                    }
+                    break;
+                case '{':
+                case '}':
+                    if (next < length && value.charAt(next) == c) {
+                        next++;
+                        break;
+                    }
+                    final int itemEnd = c == '{' ? FormatItems.itemEnd(value, i) : -1;
+                    if (itemEnd >= 0) {
+                        formatSummary |= FormatItems.summarize(value, i, itemEnd);
+                        next = itemEnd;
+                    }
+                    break;
+                case '<':
+                    final int tagEnd = tagEnd(value, i);
+                    if (tagEnd < 0) {
+                        break;
+                    }
+                    tags++;
+                    final boolean closing = value.charAt(i + 1) == '/';
+                    final boolean selfClosing = value.charAt(tagEnd - 2) == '/';
+                    if (closing) {
+                        depth--;
+                        balanced &= depth >= 0;
+                    } else {
+                        tagSignature += tagNameHash(value, i + 1);
+                        if (!selfClosing) {
+                            depth++;
+                        }
+                    }
+                    // only the tag itself is recorded, its attributes may hold format items, newlines and entities
+                    break;
+                default:
+                    break;
+            }
+            if (next > i + 1) {
+                lastContent = next - 1;
+            }
+            i = next;
+        }
+        return new ValueProfile(value, firstContent < 0 ? length : firstContent, length - 1 - lastContent, newlines,
+                accelerators, tags, tagSignature, balanced && depth == 0, formatSummary);
+    }
+
+    /**
+     * @return True if the ampersand at the given position starts an entity like <tt>&amp;nbsp;</tt>
+     */
+    private static boolean isEntity(String value, int ampersand) {
+        final int limit = Math.min(value.length(), ampersand + 10);
+        for (int i = ampersand + 1; i < limit; i++) {
+            final char c = value.charAt(i);
+            if (c == ';') {
+                return i > ampersand + 1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '#') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The position after the closing <tt>&gt;</tt> of the HTML or XAML tag starting at the given position, -1
+     * if no tag starts there
+     */
+    private static int tagEnd(String value, int start) {
+        final int length = value.length();
+        int j = start + 1;
+        if (j < length && value.charAt(j) == '/') {
+            j++;
+        }
+        if (j >= length || !Character.isLetter(value.charAt(j))) {
+            return -1;
+        }
+        while (j < length && value.charAt(j) != '>' && value.charAt(j) != '<') {
+            j++;
+        }
+        return j < length && value.charAt(j) == '>' ? j + 1 : -1;
+    }
+
+    private static long tagNameHash(String value, int start) {
+        long hash = 0;
+        for (int i = start; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != ':' && c != '.' && c != '_' && c != '-') {
+                break;
+            }
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+
+    /**
+     * @return The profiled value, never <tt>null</tt>
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public int getLength() {
+        return value.length();
+    }
+
+    public int getLeadingWhitespace() {
+        return leadingWhitespace;
+    }
+
+    public int getTrailingWhitespace() {
+        return trailingWhitespace;
+    }
+
+    public int getNewlines() {
+        return newlines;
+    }
+
+    /**
+     * @return The number of accelerator keys, i.e. ampersands followed by a letter or digit. Escaped ampersands
+     * (<tt>&amp;&amp;</tt>) and entities are not counted
+     */
+    public int getAccelerators() {
+        return accelerators;
+    }
+
+    /**
+     * @return The number of opening, closing and self-closing tags
+     */
+    public int getTags() {
+        return tags;
+    }
+
+    /**
+     * @return A hash of the names of all opening and self-closing tags that does not depend on their order
+     */
+    public long getTagSignature() {
+        return tagSignature;
+    }
+
+    /**
+     * @return True if every tag is closed in order, i.e. no tag is closed before it was opened and none is left open
+     */
+    public boolean areTagsBalanced() {
+        return tagsBalanced;
+    }
+
+    /**
+     * @return A summary of the format items of the value, see {@link FormatItems}
+     */
+    long getFormatSummary() {
+        return formatSummary;
+    }
+}
@@ -3,7 +3,6 @@ package de.vogel612.helper.data.util;
 import de.vogel612.helper.data.FilesetModel;
 
 import java.io.IOException;
-import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.regex.Matcher;
@@ -82,7 +81,7 @@ public class DataUtilities {
 
     private static final String FILE_NAME_FORMAT = "%s%s.resx";
     private static final String FILENAME_REGEX = "^([^.]*)(\\.[a-z]{2}(?:-[a-z]{2})?)?\\.resx$";
-    private static final Pattern FILENAME_PATTERN = Pattern.compile(FILENAME_REGEX,
+    static final Pattern FILENAME_PATTERN = Pattern.compile(FILENAME_REGEX,
             Pattern.CASE_INSENSITIVE | Pattern.CANON_EQ);
     private static final String FILESET_REGEX = "%s(\\.[a-zA-Z]{2}(?:-[a-zA-Z]{2})?)?\\.resx";
 
@@ -130,12 +129,26 @@ public class DataUtilities {
      *
      * @throws IOException
      *         In case the directory is not accessible
+     * @see DirectoryIndex
      */
     public static Stream<Path> streamFileset(Path currentPath, String currentFileset) throws IOException {
-        return Files.find(currentPath, 1,
-                // build our own matcher for filenames in the set!
-                (path, properties) -> path.getFileName().toString().matches(String.format(FILESET_REGEX, currentFileset)),
-                FileVisitOption.FOLLOW_LINKS);
+        return DirectoryIndex.of(currentPath).getFileset(currentFileset).values().stream();
+    }
+
+    /**
+     * Checks whether the given file is a resx file of the given fileset, regardless of its locale
+     *
+     * @param file
+     *         The file to check
+     * @param fileset
+     *         The fileset identifier the file should belong to
+     *
+     * @return True if the filename consists of the fileset identifier, an optional locale and the extension <tt>resx</tt>
+     */
+    public static boolean belongsToFileset(Path file, String fileset) {
+        // build our own matcher for filenames in the set!
+        return file.getFileName() != null
+                && file.getFileName().toString().matches(String.format(FILESET_REGEX, Pattern.quote(fileset)));
     }
 
     /**
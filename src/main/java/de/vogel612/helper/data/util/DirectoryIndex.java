@@ -0,0 +1,124 @@
+package de.vogel612.helper.data.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * An index of all resx files directly in a folder, grouped by their fileset identifier and locale, and of the folders
+ * directly in it. The folder is listed once and the index is reused until the modification time of the folder changes,
+ * which happens whenever files are added to, removed from or renamed in it.
+ */
+public final class DirectoryIndex {
+
+    /**
+     * How many folders are indexed at most. Discovering resource sets indexes every folder of a project once, so the
+     * least recently used indices are dropped rather than kept for the lifetime of the application.
+     */
+    static final int MAX_INDICES = 256;
+    private static final Map<Path, DirectoryIndex> INDICES = Collections.synchronizedMap(
+            new LinkedHashMap<Path, DirectoryIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, DirectoryIndex> eldest) {
+                    return size() > MAX_INDICES;
+                }
+            });
+    /**
+     * Folders modified this shortly before they were listed might change again without a visible change of their
+     * modification time, because file systems store it with limited precision.
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    private final long modified;
+    private final boolean racy;
+    private final Map<String, Map<String, Path>> filesets;
+    private final List<Path> subfolders;
+
+    private DirectoryIndex(long modified, boolean racy, Map<String, Map<String, Path>> filesets, List<Path> subfolders) {
+        this.modified = modified;
+        this.racy = racy;
+        this.filesets = filesets;
+        this.subfolders = subfolders;
+    }
+
+    /**
+     * Gets the index of the given folder. The folder is only listed again if it was modified since it was last indexed.
+     *
+     * @param folder
+     *         The folder to get the index of
+     *
+     * @return An up to date index of the resx files in the folder
+     *
+     * @throws IOException
+     *         In case the folder cannot be accessed
+     */
+    public static DirectoryIndex of(Path folder) throws IOException {
+        final Path key = folder.toAbsolutePath().normalize();
+        final long modified = Files.getLastModifiedTime(key).toMillis();
+        final DirectoryIndex known = INDICES.get(key);
+        if (known != null && known.modified == modified && !known.racy) {
+            return known;
+        }
+        final DirectoryIndex fresh = build(folder, modified);
+        INDICES.put(key, fresh);
+        return fresh;
+    }
+
+    private static DirectoryIndex build(Path folder, long modified) throws IOException {
+        final Map<String, Map<String, Path>> filesets = new HashMap<>();
+        final List<Path> subfolders = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                if (!fileName.endsWith(".resx")) {
+                    if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+                        subfolders.add(file);
+                    }
+                    continue;
+                }
+                final Matcher matcher = DataUtilities.FILENAME_PATTERN.matcher(fileName);
+                if (!matcher.matches() || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                final String locale = matcher.group(2) == null
+                        ? DataUtilities.FALLBACK_LOCALE
+                        : matcher.group(2).substring(1);
+                filesets.computeIfAbsent(matcher.group(1), name -> new TreeMap<>()).put(locale, file);
+            }
+        }
+        filesets.replaceAll((name, locales) -> Collections.unmodifiableMap(locales));
+        final boolean racy = System.currentTimeMillis() - modified < RACY_MILLIS;
+        return new DirectoryIndex(modified, racy, Collections.unmodifiableMap(filesets),
+                Collections.unmodifiableList(subfolders));
+    }
+
+    /**
+     * @return The identifiers of all filesets in the folder
+     */
+    public Set<String> getFilesets() {
+        return filesets.keySet();
+    }
+
+    /**
+     * @return The folders directly in the indexed folder. Symbolic links to folders are not included
+     */
+    public List<Path> getSubfolders() {
+        return subfolders;
+    }
+
+    /**
+     * Gets the files of a single fileset by their locale
+     *
+     * @param fileset
+     *         The fileset identifier
+     *
+     * @return An unmodifiable Map from locales to files, sorted by locale. Empty if the fileset has no files in the folder
+     */
+    public Map<String, Path> getFileset(String fileset) {
+        return filesets.getOrDefault(fileset, Collections.emptyMap());
+    }
+}
@@ -0,0 +1,345 @@
+package de.vogel612.helper.data.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of unsaved edits, one file per fileset, to recover them after a crash. Appending only queues
+ * the edit; a single writer thread writes everything queued so far and forces it to disk with a single sync, so that
+ * edits never wait for the disk and a burst of edits costs a single sync.
+ * <p>
+ * Every record is stored with a checksum. Reading stops at the first incomplete or damaged record, which is what a
+ * crash while writing leaves behind. Before appending to such a journal, it is cut back to its last intact record, so
+ * that edits appended later can be read again.
+ */
+public final class EditJournal implements Closeable {
+
+    private static final int MAGIC = 0x5448454A; // "THEJ"
+    private static final int VERSION = 1;
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A single journaled edit
+     */
+    public static final class Edit {
+        private final String locale;
+        private final String key;
+        private final String value;
+
+        public Edit(String locale, String key, String value) {
+            this.locale = locale;
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getLocale() {
+            return locale;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Something for the writer to do: append a record, delete a journal or only signal that everything before it was
+     * written.
+     */
+    private static final class Command {
+        private final Path fileset;
+        private final byte[] record;
+        private final CountDownLatch written;
+
+        private Command(Path fileset, byte[] record, CountDownLatch written) {
+            this.fileset = fileset;
+            this.record = record;
+            this.written = written;
+        }
+    }
+
+    private static final Command STOP = new Command(null, null, null);
+
+    private final Path directory;
+    private final BlockingQueue<Command> commands = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    /**
+     * The open journals, only accessed by the writer.
+     */
+    private final Map<Path, FileChannel> journals = new HashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a journal storing its files in the given directory and starts its writer.
+     *
+     * @param directory
+     *         The directory to store journals in. Created on the first edit
+     */
+    public EditJournal(Path directory) {
+        this.directory = directory;
+        writer = new Thread(this::write, "Edit-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an edit to be appended to the journal of a fileset. Returns immediately.
+     *
+     * @param fileset
+     *         The file of the fallback locale of the fileset
+     * @param locale
+     *         The locale of the edited translation
+     * @param key
+     *         The key of the edited translation
+     * @param value
+     *         The new value of the translation
+     */
+    public void append(Path fileset, String locale, String key, String value) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(buffer)) {
+            SnapshotCache.writeString(data, locale);
+            SnapshotCache.writeString(data, key);
+            SnapshotCache.writeString(data, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final byte[] payload = buffer.toByteArray();
+        final CRC32 checksum = new CRC32();
+        checksum.update(payload);
+        final ByteBuffer record = ByteBuffer.allocate(payload.length + 12);
+        record.putInt(payload.length).put(payload).putLong(checksum.getValue());
+        enqueue(new Command(normalize(fileset), record.array(), null));
+    }
+
+    /**
+     * Queues the deletion of the journal of a fileset, after its edits were saved. Edits appended before are dropped
+     * with it.
+     *
+     * @param fileset
+     *         The file of the fallback locale of the fileset
+     */
+    public void truncate(Path fileset) {
+        enqueue(new Command(normalize(fileset), null, null));
+    }
+
+    /**
+     * Waits until everything queued so far is on disk.
+     *
+     * @throws InterruptedIOException
+     *         In case the thread is interrupted while waiting
+     */
+    public void flush() throws InterruptedIOException {
+        final CountDownLatch written = new CountDownLatch(1);
+        enqueue(new Command(null, null, written));
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the edit journal");
+        }
+    }
+
+    private void enqueue(Command command) {
+        if (closed) {
+            throw new IllegalStateException("The edit journal is closed");
+        }
+        commands.add(command);
+    }
+
+    /**
+     * Reads the edits journaled for a fileset.
+     *
+     * @param fileset
+     *         The file of the fallback locale of the fileset
+     *
+     * @return The edits in the order they were made, empty if there is no journal
+     */
+    public List<Edit> read(Path fileset) {
+        final Path journal = journalFile(fileset);
+        if (!Files.isRegularFile(journal)) {
+            return Collections.emptyList();
+        }
+        final List<Edit> edits = new ArrayList<>();
+        try {
+            scan(journal, fileset, edits);
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+        return edits;
+    }
+
+    /**
+     * Reads the intact records of a journal.
+     *
+     * @param journal
+     *         The journal file to read
+     * @param fileset
+     *         The file of the fallback locale of the fileset the journal must belong to
+     * @param edits
+     *         Where to add the edits of the intact records to
+     *
+     * @return The length of the journal up to the end of its last intact record, -1 if its header is not intact or
+     * belongs to another fileset
+     *
+     * @throws IOException
+     *         In case the journal cannot be read
+     */
+    private static long scan(Path journal, Path fileset, List<Edit> edits) throws IOException {
+        long intact = -1;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return -1;
+            }
+            final String owner = SnapshotCache.readString(input);
+            if (!normalize(fileset).toString().equals(owner)) {
+                return -1;
+            }
+            intact = 12 + owner.getBytes(StandardCharsets.UTF_8).length;
+            final long size = Files.size(journal);
+            while (true) {
+                final int length = input.readInt();
+                if (length < 0 || length > size) {
+                    break;
+                }
+                final byte[] payload = new byte[length];
+                input.readFully(payload);
+                final CRC32 checksum = new CRC32();
+                checksum.update(payload);
+                if (checksum.getValue() != input.readLong()) {
+                    break;
+                }
+                final DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                edits.add(new Edit(SnapshotCache.readString(record), SnapshotCache.readString(record),
+                        SnapshotCache.readString(record)));
+                intact += length + 12;
+            }
+        } catch (EOFException e) {
+            // the end of the journal, or a record torn by a crash
+        }
+        return intact;
+    }
+
+    /**
+     * Writes everything queued so far and stops the writer. Journals are kept on disk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        commands.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the edit journal");
+        }
+    }
+
+    /**
+     * Run by the writer: takes all queued commands at once, executes them in order and syncs every journal written to
+     * once afterwards.
+     */
+    private void write() {
+        final List<Command> batch = new ArrayList<>();
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(commands.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            commands.drainTo(batch);
+            final Set<FileChannel> unsynced = new HashSet<>();
+            for (Command command : batch) {
+                if (command == STOP) {
+                    stopped = true;
+                } else if (command.record != null) {
+                    try {
+                        final FileChannel journal = open(command.fileset);
+                        journal.write(ByteBuffer.wrap(command.record));
+                        unsynced.add(journal);
+                    } catch (IOException e) {
+                        e.printStackTrace(System.err);
+                    }
+                } else if (command.fileset != null) {
+                    final FileChannel journal = journals.remove(command.fileset);
+                    unsynced.remove(journal);
+                    try {
+                        if (journal != null) {
+                            journal.close();
+                        }
+                        Files.deleteIfExists(journalFile(command.fileset));
+                    } catch (IOException e) {
+                        e.printStackTrace(System.err);
+                    }
+                }
+            }
+            for (FileChannel journal : unsynced) {
+                try {
+                    journal.force(false);
+                } catch (IOException e) {
+                    e.printStackTrace(System.err);
+                }
+            }
+            batch.stream().filter(command -> command.written != null).forEach(command -> command.written.countDown());
+            batch.clear();
+        }
+        for (FileChannel journal : journals.values()) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace(System.err);
+            }
+        }
+        journals.clear();
+    }
+
+    private FileChannel open(Path fileset) throws IOException {
+        FileChannel journal = journals.get(fileset);
+        if (journal != null) {
+            return journal;
+        }
+        Files.createDirectories(directory);
+        final Path file = journalFile(fileset);
+        journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // records appended after a torn one could never be read
+        final long intact = journal.size() == 0 ? -1 : scan(file, fileset, new ArrayList<>());
+        journal.truncate(Math.max(intact, 0));
+        journal.position(journal.size());
+        if (intact < 0) {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(header)) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                SnapshotCache.writeString(data, fileset.toAbsolutePath().normalize().toString());
+            }
+            journal.write(ByteBuffer.wrap(header.toByteArray()));
+        }
+        journals.put(fileset, journal);
+        return journal;
+    }
+
+    private static Path normalize(Path fileset) {
+        return fileset.toAbsolutePath().normalize();
+    }
+
+    private Path journalFile(Path fileset) {
+        return directory.resolve(SnapshotCache.fileNameOf(fileset) + JOURNAL_SUFFIX);
+    }
+}
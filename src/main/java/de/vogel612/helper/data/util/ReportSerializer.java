@@ -0,0 +1,231 @@
+package de.vogel612.helper.data.util;
+
+import de.vogel612.helper.data.BuiltInRule;
+import de.vogel612.helper.data.NotableData.Notability;
+import de.vogel612.helper.data.ValidationFinding;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Static helper class to write validation findings as JSON or as a SARIF 2.1.0 log, which build servers and code
+ * hosts can show next to the changed files. Both formats are written by hand, without any JSON library.
+ */
+public final class ReportSerializer {
+
+    private static final String SARIF_SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final String TOOL_NAME = "TranslationHelper";
+    private static final String FALLBACK_RULE = "VALIDATION";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private ReportSerializer() {
+    }
+
+    /**
+     * Writes the findings as a single JSON object with the number of findings per severity and one entry per finding.
+     *
+     * @param project
+     *         The name of the validated project
+     * @param findings
+     *         The findings to write, in the order they are written
+     * @param base
+     *         The directory file paths are written relative to, usually the folder of the project file
+     * @param out
+     *         Where to write the JSON to
+     *
+     * @throws IOException
+     *         If writing to the output fails
+     */
+    public static void writeJson(String project, List<ValidationFinding> findings, Path base, Appendable out)
+            throws IOException {
+        out.append("{\n  \"project\": ").append(quote(project));
+        for (Notability severity : new Notability[]{Notability.ERROR, Notability.WARNING, Notability.INFO}) {
+            out.append(",\n  \"").append(severityName(severity)).append("s\": ")
+                    .append(Long.toString(findings.stream().filter(f -> f.getSeverity() == severity).count()));
+        }
+        out.append(",\n  \"findings\": [");
+        String separator = "\n";
+        for (ValidationFinding finding : findings) {
+            out.append(separator)
+                    .append("    {\"resourceSet\": ").append(quote(finding.getResourceSet()))
+                    .append(", \"file\": ").append(quote(uriOf(finding.getFile(), base)))
+                    .append(", \"locale\": ").append(quote(finding.getLocale()))
+                    .append(", \"key\": ").append(quote(finding.getKey()))
+                    .append(", \"severity\": ").append(quote(severityName(finding.getSeverity())))
+                    .append(", \"rules\": ");
+            writeArray(finding.getRules(), out);
+            if (!finding.getArguments().isEmpty()) {
+                out.append(", \"arguments\": ").append(finding.getArguments().toString());
+            }
+            out.append('}');
+            separator = ",\n";
+        }
+        out.append(findings.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    /**
+     * Writes the findings as a SARIF log with a single run. Every rule a finding violates is written as a separate
+     * result, located by the file of the translation and its key.
+     *
+     * @param findings
+     *         The findings to write, in the order they are written
+     * @param base
+     *         The directory artifact URIs are relative to, usually the folder of the project file
+     * @param out
+     *         Where to write the SARIF log to
+     *
+     * @throws IOException
+     *         If writing to the output fails
+     */
+    public static void writeSarif(List<ValidationFinding> findings, Path base, Appendable out) throws IOException {
+        final Set<String> rules = new TreeSet<>();
+        for (ValidationFinding finding : findings) {
+            rules.addAll(finding.getRules().isEmpty() ? Collections.singletonList(FALLBACK_RULE) : finding.getRules());
+        }
+        out.append("{\n  \"$schema\": ").append(quote(SARIF_SCHEMA))
+                .append(",\n  \"version\": \"2.1.0\",\n  \"runs\": [{\n    \"tool\": {\"driver\": {\"name\": ")
+                .append(quote(TOOL_NAME)).append(", \"rules\": [");
+        String separator = "";
+        for (String rule : rules) {
+            out.append(separator).append("{\"id\": ").append(quote(rule)).append('}');
+            separator = ", ";
+        }
+        out.append("]}},\n    \"results\": [");
+        separator = "\n";
+        for (ValidationFinding finding : findings) {
+            final Collection<String> violated = finding.getRules().isEmpty()
+                    ? Collections.singletonList(FALLBACK_RULE)
+                    : finding.getRules();
+            for (String rule : violated) {
+                out.append(separator)
+                        .append("      {\"ruleId\": ").append(quote(rule))
+                        .append(", \"level\": ").append(quote(sarifLevel(finding.getSeverity())))
+                        .append(", \"message\": {\"text\": ").append(quote(messageOf(finding, rule)))
+                        .append("}, \"locations\": [{\"physicalLocation\": {\"artifactLocation\": {\"uri\": ")
+                        .append(quote(uriOf(finding.getFile(), base)))
+                        .append("}}, \"logicalLocations\": [{\"name\": ").append(quote(finding.getKey()))
+                        .append(", \"kind\": \"member\"}]}]}");
+                separator = ",\n";
+            }
+        }
+        out.append("\n    ]\n  }]\n}\n");
+    }
+
+    private static String messageOf(ValidationFinding finding, String rule) {
+        final String locale = finding.getLocale().isEmpty() ? "the fallback locale" : "locale " + finding.getLocale();
+        final String message = "Translation of '" + finding.getKey() + "' in " + locale + " of "
+                + finding.getResourceSet() + " violates " + rule;
+        if (!rule.equals(BuiltInRule.FORMAT_SPECIFIERS.getName()) || finding.getArguments().isEmpty()) {
+            return message;
+        }
+        final StringBuilder arguments = new StringBuilder();
+        for (int argument : finding.getArguments()) {
+            arguments.append(arguments.length() == 0 ? "" : ", ").append('{').append(argument).append('}');
+        }
+        return message + ", format items differ for " + arguments;
+    }
+
+    private static String severityName(Notability severity) {
+        return severity.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String sarifLevel(Notability severity) {
+        switch (severity) {
+            case ERROR:
+                return "error";
+            case WARNING:
+                return "warning";
+            default:
+                return "note";
+        }
+    }
+
+    /**
+     * @return The given file as URI reference relative to the base directory if possible, otherwise as absolute
+     * <tt>file</tt> URI
+     */
+    static String uriOf(Path file, Path base) {
+        final Path absolute = file.toAbsolutePath().normalize();
+        final Path relative;
+        try {
+            relative = base == null ? null : base.toAbsolutePath().normalize().relativize(absolute);
+        } catch (IllegalArgumentException e) {
+            // a different root
+            return absolute.toUri().toString();
+        }
+        if (relative == null) {
+            return absolute.toUri().toString();
+        }
+        final StringBuilder uri = new StringBuilder();
+        for (Path segment : relative) {
+            if (uri.length() > 0) {
+                uri.append('/');
+            }
+            appendEscaped(segment.toString(), uri);
+        }
+        return uri.toString();
+    }
+
+    /**
+     * Appends a path segment with every character percent-encoded that is not allowed in a segment as is. Colons are
+     * encoded as well, since they would turn the first segment of a relative reference into a scheme.
+     */
+    private static void appendEscaped(String segment, StringBuilder uri) {
+        for (byte b : segment.getBytes(StandardCharsets.UTF_8)) {
+            final char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || "-._~!$&'()*+,;=@".indexOf(c) >= 0) {
+                uri.append(c);
+            } else {
+                uri.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+    }
+
+    private static void writeArray(List<String> values, Appendable out) throws IOException {
+        out.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(quote(values.get(i)));
+        }
+        out.append(']');
+    }
+
+    /**
+     * @return The given string as JSON string literal, including the quotes
+     */
+    static String quote(String value) {
+        final StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
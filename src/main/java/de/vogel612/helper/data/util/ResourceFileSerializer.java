@@ -2,10 +2,18 @@ package de.vogel612.helper.data.util;
 
 import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.filter.Filters;
-import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.util.*;
 
 /**
@@ -17,30 +25,139 @@ public class ResourceFileSerializer {
     private static final String KEY_NAME = "name";
     private static final String VALUE_NAME = "value";
 
-    private static final XPathFactory X_PATH_FACTORY = XPathFactory.instance();
-    private static final XPathExpression<Element> VALUE_EXPRESSION = X_PATH_FACTORY.compile("/*/"
-            + ELEMENT_NAME + "[@" + KEY_NAME + "=$key]/"
-            + VALUE_NAME, Filters.element(), Collections.singletonMap("key", ""));
+    // XMLInputFactory instances are not guaranteed to be thread-safe, files may be parsed concurrently
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    });
 
     /**
-     * Deserializes the given Document as resource-file into a Map of keys and values
+     * Deserializes the resource-file in the given stream into a Map of keys and values. The stream is read in a single
+     * pass without building a Document. Only the first <tt>value</tt> of every <tt>data</tt>-entry directly under
+     * the root element is considered.
      *
-     * @param document
-     *         The given document to deserialize
+     * @param input
+     *         The stream containing the resx file. Closing it is the responsibility of the caller
      *
-     * @return A Map containing all keys and values from the given Document when processed as .resx file
+     * @return A Map containing all keys and values from the given stream when processed as .resx file
+     *
+     * @throws XMLStreamException
+     *         In case the stream does not contain well-formed XML
      */
-    public static Map<String, String> deserializeToMap(Document document) {
+    public static Map<String, String> deserializeToMap(InputStream input) throws XMLStreamException {
         final Map<String, String> result = new HashMap<>();
-        document.getRootElement().getChildren(ELEMENT_NAME)
-                .forEach(el -> {
-                    final String key = el.getAttribute(KEY_NAME).getValue();
-                    final String value = el.getChildText(VALUE_NAME);
-                    result.put(key, value);
-                });
+        read(INPUT_FACTORY.get().createXMLStreamReader(input), result, null);
         return result;
     }
 
+    /**
+     * Deserializes the given content of a resource-file into the given Map of keys and values, like {@link
+     * #deserializeToMap(InputStream)}. In the same pass the position of every value in the content is recorded, which
+     * allows writing changes back without touching the rest of the file.
+     *
+     * @param source
+     *         The raw content of a resx file
+     * @param entries
+     *         The Map to put all keys and values of the file into
+     *
+     * @return The layout of the file, or <tt>null</tt> if the file cannot be patched safely. The entries are filled
+     * regardless
+     *
+     * @throws XMLStreamException
+     *         In case the content is not well-formed XML
+     */
+    public static ResxLayout deserialize(final byte[] source, final Map<String, String> entries) throws XMLStreamException {
+        final int byteOrderMark = ResxLayout.byteOrderMarkLength(source);
+        final Charset charset = ResxLayout.detectCharset(source);
+        final String text;
+        try {
+            text = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(source, byteOrderMark, source.length - byteOrderMark))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            // offsets cannot be mapped back onto the bytes, leave decoding to the parser
+            entries.putAll(deserializeToMap(new ByteArrayInputStream(source)));
+            return null;
+        }
+        final ResxLayout.Recorder recorder = new ResxLayout.Recorder(source, byteOrderMark, charset, text);
+        read(INPUT_FACTORY.get().createXMLStreamReader(new StringReader(text)), entries, recorder);
+        return recorder.build();
+    }
+
+    private static void read(final XMLStreamReader reader, final Map<String, String> result,
+                             final ResxLayout.Recorder recorder) throws XMLStreamException {
+        try {
+            int depth = 0;
+            String key = null;
+            StringBuilder value = null;
+            boolean valueSeen = false;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        if (depth == 1 && recorder != null) {
+                            recorder.rootStart(offset(reader));
+                        } else if (depth == 2 && ELEMENT_NAME.equals(reader.getLocalName())) {
+                            key = reader.getAttributeValue(null, KEY_NAME);
+                            valueSeen = false;
+                            if (recorder != null) {
+                                recorder.dataStart(offset(reader));
+                            }
+                        } else if (depth == 3 && key != null && !valueSeen && VALUE_NAME.equals(reader.getLocalName())) {
+                            value = new StringBuilder();
+                            valueSeen = true;
+                            if (recorder != null) {
+                                recorder.valueStart(key, offset(reader));
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (depth == 3 && value != null) {
+                            value.append(reader.getText());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (depth == 3 && value != null) {
+                            result.put(key, value.toString());
+                            value = null;
+                            if (recorder != null) {
+                                recorder.valueEnd(offset(reader));
+                            }
+                        } else if (depth == 2) {
+                            if (key != null) {
+                                // entries without a value are kept like JDOM's getChildText would report them
+                                result.putIfAbsent(key, null);
+                                if (!valueSeen && recorder != null) {
+                                    recorder.invalidate();
+                                }
+                                key = null;
+                            }
+                            if (recorder != null) {
+                                recorder.childEnd(offset(reader));
+                            }
+                        }
+                        depth--;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static int offset(XMLStreamReader reader) {
+        return reader.getLocation().getCharacterOffset();
+    }
+
     /**
      * Creates a new <tt>data</tt>-entry for a given key and a given value. Neither may be null
      *
@@ -65,18 +182,81 @@ public class ResourceFileSerializer {
     }
 
     /**
-     * Grabs the <tt>value</tt> subelement of a resx <tt>data</tt>-entry with a specified key from a given {@link
-     * Document}
+     * Builds an index from the keys of all resx <tt>data</tt>-entries in the given {@link Document} to their
+     * <tt>value</tt> subelements in a single pass. If a key occurs multiple times, the first entry wins. Entries
+     * without a <tt>value</tt> subelement get an empty one, so they can be updated through the index.
      *
      * @param doc
-     *         The document to search for the ELement
+     *         The document to index
+     *
+     * @return A mutable Map of keys to their <tt>value</tt> elements
+     */
+    public static Map<String, Element> indexValueElements(final Document doc) {
+        final Map<String, Element> index = new HashMap<>();
+        for (Element data : doc.getRootElement().getChildren(ELEMENT_NAME)) {
+            final String key = data.getAttributeValue(KEY_NAME);
+            if (key == null || index.containsKey(key)) {
+                continue;
+            }
+            Element value = data.getChild(VALUE_NAME);
+            if (value == null) {
+                value = new Element(VALUE_NAME);
+                data.addContent(value);
+            }
+            index.put(key, value);
+        }
+        return index;
+    }
+
+    /**
+     * Sets the value of the <tt>data</tt>-entry with the given key in the given {@link Document}. If there is no such
+     * entry, a new one is appended to the document and added to the index.
+     *
+     * @param doc
+     *         The document to modify
+     * @param index
+     *         The index of the document, as obtained from {@link #indexValueElements(Document)}
      * @param key
      *         The key of the associated <tt>data</tt>-entry
+     * @param value
+     *         The new value of the entry
+     */
+    public static void setValue(final Document doc, final Map<String, Element> index, final String key,
+                                final String value) {
+        final Element valueElement = index.get(key);
+        if (valueElement == null) {
+            final Element newElement = createNewElement(key, value);
+            doc.getRootElement().addContent(newElement);
+            index.put(key, newElement.getChild(VALUE_NAME));
+        } else {
+            valueElement.setText(value);
+        }
+    }
+
+    /**
+     * Sets the values of many <tt>data</tt>-entries in the given {@link Document} at once. Existing entries are
+     * updated in place, entries that do not exist yet are appended to the document together and added to the index.
      *
-     * @return The element, if it exists, null otherwise
+     * @param doc
+     *         The document to modify
+     * @param index
+     *         The index of the document, as obtained from {@link #indexValueElements(Document)}
+     * @param values
+     *         The new values by their keys. <tt>null</tt> values are written as empty values
      */
-    public static Element getValueElement(final Document doc, final String key) {
-        VALUE_EXPRESSION.setVariable("key", key);
-        return VALUE_EXPRESSION.evaluateFirst(doc);
+    public static void setValues(final Document doc, final Map<String, Element> index, final Map<String, String> values) {
+        final List<Element> added = new ArrayList<>();
+        values.forEach((key, value) -> {
+            final String text = value == null ? "" : value;
+            final Element valueElement = index.get(key);
+            if (valueElement == null) {
+                final Element newElement = createNewElement(key, text);
+                added.add(newElement);
+                index.put(key, newElement.getChild(VALUE_NAME));
+            } else {
+                valueElement.setText(text);
+            }
+        });
+        doc.getRootElement().addContent(added);
     }
 }
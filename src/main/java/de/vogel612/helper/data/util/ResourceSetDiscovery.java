@@ -0,0 +1,175 @@
+package de.vogel612.helper.data.util;
+
+import de.vogel612.helper.data.Project;
+import de.vogel612.helper.data.ResourceSet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static de.vogel612.helper.data.util.DataUtilities.FALLBACK_LOCALE;
+
+/**
+ * Finds all resource sets below a root folder, e.g. all resx filesets of a solution. Every folder is scanned as a
+ * separate fork/join task, so that the folder tree is walked in parallel.
+ * <p>
+ * A resource set is only discovered if its fallback file (the resx file without a locale) exists. Hidden folders
+ * (starting with a dot) are not searched.
+ * </p>
+ */
+public class ResourceSetDiscovery {
+
+    private static final Comparator<ResourceSet> ORDER = Comparator
+            .comparing((ResourceSet set) -> set.getFolder().toString())
+            .thenComparing(ResourceSet::getName);
+
+    private final Path root;
+    private final ForkJoinPool pool;
+    private final Set<Consumer<Path>> progressListeners = new CopyOnWriteArraySet<>();
+    private final AtomicInteger scannedFolders = new AtomicInteger();
+    private final AtomicInteger discoveredSets = new AtomicInteger();
+
+    private volatile boolean cancelled = false;
+
+    public ResourceSetDiscovery(Path root) {
+        this(root, ForkJoinPool.commonPool());
+    }
+
+    public ResourceSetDiscovery(Path root, ForkJoinPool pool) {
+        Objects.requireNonNull(root, "root");
+        Objects.requireNonNull(pool, "pool");
+        this.root = root;
+        this.pool = pool;
+    }
+
+    /**
+     * Registers a listener that is notified with every folder after it was scanned. Listeners are called from the
+     * threads of the fork/join pool.
+     *
+     * @param listener
+     *         The listener to notify
+     */
+    public void addProgressListener(Consumer<Path> listener) {
+        progressListeners.add(listener);
+    }
+
+    /**
+     * Searches the root folder and all its subfolders for resource sets.
+     *
+     * @return All discovered resource sets, ordered by folder and name
+     *
+     * @throws IOException
+     *         In case a folder could not be listed
+     * @throws CancellationException
+     *         In case the discovery was cancelled before it completed
+     */
+    public List<ResourceSet> discover() throws IOException {
+        try {
+            final List<ResourceSet> result = pool.invoke(new FolderScan(root));
+            if (cancelled) {
+                throw new CancellationException("Discovery of resource sets under " + root + " was cancelled");
+            }
+            result.sort(ORDER);
+            return result;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates a project associated with all resource sets below the root folder.
+     *
+     * @param name
+     *         The name of the project
+     *
+     * @return A new Project containing every discovered resource set
+     *
+     * @throws IOException
+     *         In case a folder could not be listed
+     * @throws CancellationException
+     *         In case the discovery was cancelled before it completed
+     * @see #discover()
+     */
+    public Project discoverProject(String name) throws IOException {
+        return new Project(name, discover());
+    }
+
+    /**
+     * Stops the discovery. Folders that are being scanned are finished, but no further folders are scanned and
+     * {@link #discover()} throws a {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int getScannedFolders() {
+        return scannedFolders.get();
+    }
+
+    public int getDiscoveredSets() {
+        return discoveredSets.get();
+    }
+
+    private final class FolderScan extends RecursiveTask<List<ResourceSet>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path folder;
+
+        private FolderScan(Path folder) {
+            this.folder = folder;
+        }
+
+        @Override
+        protected List<ResourceSet> compute() {
+            final List<ResourceSet> result = new ArrayList<>();
+            if (cancelled) {
+                return result;
+            }
+            final DirectoryIndex index;
+            try {
+                index = DirectoryIndex.of(folder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            final List<FolderScan> subtasks = new ArrayList<>();
+            for (Path subfolder : index.getSubfolders()) {
+                if (!subfolder.getFileName().toString().startsWith(".")) {
+                    final FolderScan subtask = new FolderScan(subfolder);
+                    subtask.fork();
+                    subtasks.add(subtask);
+                }
+            }
+
+            for (String fileset : index.getFilesets()) {
+                final Map<String, Path> files = index.getFileset(fileset);
+                if (!files.containsKey(FALLBACK_LOCALE)) {
+                    continue;
+                }
+                final Set<String> locales = new HashSet<>(files.keySet());
+                locales.remove(FALLBACK_LOCALE);
+                result.add(new ResourceSet(fileset, folder, locales));
+            }
+            discoveredSets.addAndGet(result.size());
+            scannedFolders.incrementAndGet();
+            progressListeners.forEach(listener -> listener.accept(folder));
+
+            for (FolderScan subtask : subtasks) {
+                result.addAll(subtask.join());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package de.vogel612.helper.data.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The physical layout of a resx file as it was read: the raw content and the byte ranges of all values in it. This
+ * allows writing changes back by replacing only the changed values and appending new entries, while every other byte of
+ * the file is copied verbatim. Obtained from {@link ResourceFileSerializer#deserialize(byte[], Map)}.
+ */
+public final class ResxLayout {
+
+    private static final Pattern DECLARED_ENCODING = Pattern.compile("^<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._:-]+)[\"']");
+    private static final int DECLARATION_LENGTH = 100;
+    private static final String DEFAULT_INDENT = "  ";
+
+    private static final int START = 0;
+    private static final int END = 1;
+    private static final int SELF_CLOSING = 2;
+
+    private final byte[] source;
+    private final Charset charset;
+    /**
+     * Byte range of the content of each value. For self-closing values the range covers the closing <tt>/&gt;</tt>
+     */
+    private final Map<String, int[]> valueSpans;
+    private final int insertionPoint;
+    private final String lineSeparator;
+    private final String indent;
+
+    private ResxLayout(byte[] source, Charset charset, Map<String, int[]> valueSpans, int insertionPoint,
+                       String lineSeparator, String indent) {
+        this.source = source;
+        this.charset = charset;
+        this.valueSpans = valueSpans;
+        this.insertionPoint = insertionPoint;
+        this.lineSeparator = lineSeparator;
+        this.indent = indent;
+    }
+
+    /**
+     * @return The raw content of the file this layout describes. Must not be modified
+     */
+    public byte[] getSource() {
+        return source;
+    }
+
+    /**
+     * Creates the content of the file with the given changes applied. Values of existing keys are replaced in place,
+     * keys that do not exist yet are appended as new <tt>data</tt>-entries after the last existing entry. All other
+     * content is copied unchanged.
+     *
+     * @param changes
+     *         The new values by their keys
+     *
+     * @return The patched content of the file
+     */
+    public byte[] patch(final Map<String, String> changes) {
+        final List<Map.Entry<String, String>> replacements = new ArrayList<>();
+        final StringBuilder additions = new StringBuilder();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (valueSpans.containsKey(change.getKey())) {
+                replacements.add(change);
+            } else {
+                appendDataElement(additions, change.getKey(), change.getValue());
+            }
+        }
+        replacements.sort(Comparator.comparingInt(change -> valueSpans.get(change.getKey())[START]));
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(source.length + additions.length());
+        int position = 0;
+        for (Map.Entry<String, String> replacement : replacements) {
+            final int[] span = valueSpans.get(replacement.getKey());
+            result.write(source, position, span[START] - position);
+            final String escaped = escape(replacement.getValue(), false);
+            final byte[] content = (span[SELF_CLOSING] == 0 ? escaped : ">" + escaped + "</value>").getBytes(charset);
+            result.write(content, 0, content.length);
+            position = span[END];
+        }
+        result.write(source, position, insertionPoint - position);
+        final byte[] appended = additions.toString().getBytes(charset);
+        result.write(appended, 0, appended.length);
+        result.write(source, insertionPoint, source.length - insertionPoint);
+        return result.toByteArray();
+    }
+
+    private void appendDataElement(StringBuilder target, String key, String value) {
+        target.append(lineSeparator).append(indent)
+                .append("<data name=\"").append(escape(key, true)).append("\" xml:space=\"preserve\">")
+                .append(lineSeparator).append(indent).append(indent)
+                .append("<value>").append(escape(value, false)).append("</value>")
+                .append(lineSeparator).append(indent)
+                .append("</data>");
+    }
+
+    /**
+     * Escapes text for use in element content or attribute values. Characters the charset of the file cannot
+     * represent are written as character references.
+     */
+    private String escape(String text, boolean attribute) {
+        if (text == null) {
+            return "";
+        }
+        final CharsetEncoder encoder = charset.newEncoder();
+        final StringBuilder result = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); ) {
+            final int codePoint = text.codePointAt(i);
+            final int length = Character.charCount(codePoint);
+            switch (codePoint) {
+                case '&':
+                    result.append("&amp;");
+                    break;
+                case '<':
+                    result.append("&lt;");
+                    break;
+                case '>':
+                    result.append("&gt;");
+                    break;
+                case '\r':
+                    result.append("&#xD;");
+                    break;
+                case '"':
+                    result.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\t':
+                case '\n':
+                    if (attribute) {
+                        result.append("&#x").append(Integer.toHexString(codePoint).toUpperCase()).append(';');
+                    } else {
+                        result.appendCodePoint(codePoint);
+                    }
+                    break;
+                default:
+                    if (encoder.canEncode(text.subSequence(i, i + length))) {
+                        result.appendCodePoint(codePoint);
+                    } else {
+                        result.append("&#x").append(Integer.toHexString(codePoint).toUpperCase()).append(';');
+                    }
+                    break;
+            }
+            i += length;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Determines the number of bytes taken by a byte order mark at the start of the given content
+     */
+    static int byteOrderMarkLength(byte[] source) {
+        if (source.length >= 3 && (source[0] & 0xFF) == 0xEF && (source[1] & 0xFF) == 0xBB && (source[2] & 0xFF) == 0xBF) {
+            return 3;
+        }
+        if (source.length >= 2 && ((source[0] & 0xFF) == 0xFE && (source[1] & 0xFF) == 0xFF
+                || (source[0] & 0xFF) == 0xFF && (source[1] & 0xFF) == 0xFE)) {
+            return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Determines the charset of the given content from its byte order mark, its first bytes or its XML declaration.
+     * Defaults to UTF-8
+     */
+    static Charset detectCharset(byte[] source) {
+        final int byteOrderMark = byteOrderMarkLength(source);
+        if (byteOrderMark == 3) {
+            return StandardCharsets.UTF_8;
+        }
+        if (byteOrderMark == 2) {
+            return (source[0] & 0xFF) == 0xFE ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_16LE;
+        }
+        if (source.length >= 2 && source[0] == '<' && source[1] == 0) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (source.length >= 2 && source[0] == 0 && source[1] == '<') {
+            return StandardCharsets.UTF_16BE;
+        }
+        final String declaration = new String(source, 0, Math.min(source.length, DECLARATION_LENGTH), StandardCharsets.ISO_8859_1);
+        final Matcher matcher = DECLARED_ENCODING.matcher(declaration);
+        if (matcher.find() && !matcher.group(1).toUpperCase().startsWith("UTF-")) {
+            try {
+                return Charset.forName(matcher.group(1));
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Collects the character offsets of values while a file is read and turns them into a layout with byte offsets
+     * once the file has been read completely.
+     */
+    static final class Recorder {
+        private final byte[] source;
+        private final int byteOrderMark;
+        private final Charset charset;
+        private final String text;
+
+        private final List<String> keys = new ArrayList<>();
+        private final List<int[]> spans = new ArrayList<>();
+        private int insertionPoint = -1;
+        private String indent;
+        private boolean valid = true;
+
+        Recorder(byte[] source, int byteOrderMark, Charset charset, String text) {
+            this.source = source;
+            this.byteOrderMark = byteOrderMark;
+            this.charset = charset;
+            this.text = text;
+        }
+
+        /**
+         * @param offset
+         *         The offset right after the start tag of the root element
+         */
+        void rootStart(int offset) {
+            if (!endsTag(offset) || text.charAt(offset - 2) == '/') {
+                valid = false;
+            }
+            insertionPoint = offset;
+        }
+
+        /**
+         * @param offset
+         *         The offset right after the start tag of a <tt>data</tt>-entry
+         */
+        void dataStart(int offset) {
+            if (!endsTag(offset)) {
+                valid = false;
+                return;
+            }
+            final int tagStart = text.lastIndexOf('<', offset - 1);
+            final int lineStart = Math.max(text.lastIndexOf('\n', tagStart), text.lastIndexOf('\r', tagStart)) + 1;
+            final String leading = text.substring(lineStart, tagStart);
+            if (!leading.isEmpty() && leading.trim().isEmpty()) {
+                indent = leading;
+            }
+        }
+
+        /**
+         * @param offset
+         *         The offset right after the start tag of the value
+         */
+        void valueStart(String key, int offset) {
+            if (!endsTag(offset) || !text.startsWith("<value", text.lastIndexOf('<', offset - 1))) {
+                valid = false;
+                return;
+            }
+            keys.add(key);
+            if (text.charAt(offset - 2) == '/') {
+                spans.add(new int[]{offset - 2, offset, 1});
+            } else {
+                spans.add(new int[]{offset, -1, 0});
+            }
+        }
+
+        /**
+         * @param offset
+         *         The offset right after the end tag of the value
+         */
+        void valueEnd(int offset) {
+            if (!valid || spans.isEmpty()) {
+                return;
+            }
+            final int[] span = spans.get(spans.size() - 1);
+            if (span[SELF_CLOSING] != 0) {
+                return;
+            }
+            final int endTag = text.lastIndexOf("</", offset - 1);
+            if (!endsTag(offset) || endTag < span[START] || !text.startsWith("</value", endTag)) {
+                valid = false;
+                return;
+            }
+            span[END] = endTag;
+        }
+
+        /**
+         * @param offset
+         *         The offset right after the end of any direct child element of the root
+         */
+        void childEnd(int offset) {
+            if (!endsTag(offset)) {
+                valid = false;
+            }
+            insertionPoint = offset;
+        }
+
+        /**
+         * Marks the file as one whose values cannot be patched, for example because an entry has no value to replace
+         */
+        void invalidate() {
+            valid = false;
+        }
+
+        private boolean endsTag(int offset) {
+            return offset > 1 && offset <= text.length() && text.charAt(offset - 1) == '>';
+        }
+
+        /**
+         * @return The recorded layout, or <tt>null</tt> if the file cannot be patched safely
+         */
+        ResxLayout build() {
+            if (!valid || insertionPoint < 0) {
+                return null;
+            }
+            try {
+                final ByteOffsets offsets = new ByteOffsets();
+                final Map<String, int[]> valueSpans = new HashMap<>();
+                for (int i = 0; i < spans.size(); i++) {
+                    final int[] span = spans.get(i);
+                    if (span[END] < 0) {
+                        return null;
+                    }
+                    final int[] byteSpan = {offsets.of(span[START]), offsets.of(span[END]), span[SELF_CLOSING]};
+                    valueSpans.putIfAbsent(keys.get(i), byteSpan);
+                }
+                final String lineSeparator = text.contains("\r\n") ? "\r\n" : "\n";
+                return new ResxLayout(source, charset, valueSpans, offsets.of(insertionPoint), lineSeparator,
+                        indent == null ? DEFAULT_INDENT : indent);
+            } catch (CharacterCodingException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Converts ascending character offsets into byte offsets by encoding only the text between two conversions
+         */
+        private final class ByteOffsets {
+            private final CharsetEncoder encoder = charset.newEncoder();
+            private int chars = 0;
+            private int bytes = byteOrderMark;
+
+            int of(int charOffset) throws CharacterCodingException {
+                if (charOffset < chars) {
+                    chars = 0;
+                    bytes = byteOrderMark;
+                }
+                bytes += encodedLength(chars, charOffset);
+                chars = charOffset;
+                return bytes;
+            }
+
+            private int encodedLength(int from, int to) throws CharacterCodingException {
+                if (charset.equals(StandardCharsets.UTF_8)) {
+                    int length = 0;
+                    for (int i = from; i < to; i++) {
+                        final char c = text.charAt(i);
+                        if (c < 0x80) {
+                            length += 1;
+                        } else if (c < 0x800) {
+                            length += 2;
+                        } else if (Character.isHighSurrogate(c)) {
+                            length += 4;
+                            i++;
+                        } else {
+                            length += 3;
+                        }
+                    }
+                    return length;
+                }
+                return encoder.encode(CharBuffer.wrap(text, from, to)).remaining();
+            }
+        }
+    }
+}
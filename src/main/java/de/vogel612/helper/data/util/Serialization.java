@@ -6,11 +6,21 @@ import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
 
 /**
  * Created by vogel612 on 14.07.16.
@@ -18,6 +28,21 @@ import java.nio.file.StandardOpenOption;
 public class Serialization {
 
     private static final XMLOutputter XML_PRETTY_PRINT = new XMLOutputter(Format.getPrettyFormat());
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    /**
+     * Temporary files are only readable by their owner, a new file gets the permissions it would usually be created
+     * with instead
+     */
+    private static final Set<PosixFilePermission> NEW_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    /**
+     * Produces the content of a file written by {@link #writeAtomically(Path, boolean, ContentWriter)}
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream output) throws IOException;
+    }
 
     /**
      * Deserializes the XML document at the given path into a Document
@@ -37,7 +62,25 @@ public class Serialization {
     }
 
     /**
-     * Serializes the given JDOM Document to the given Path
+     * Deserializes the XML document contained in the given bytes into a Document
+     *
+     * @param source
+     *         The raw content of an XML file
+     *
+     * @return a document instance built from the given bytes
+     *
+     * @throws IOException
+     *         When reading the bytes failed
+     * @throws JDOMException
+     *         When the bytes could not be parsed into a document
+     */
+    public static Document parseBytes(final byte[] source) throws IOException, JDOMException {
+        return new SAXBuilder().build(new ByteArrayInputStream(source));
+    }
+
+    /**
+     * Serializes the given JDOM Document to the given Path. The document is written and synced to a temporary file
+     * first, which then replaces the target. See {@link #writeAtomically(Path, boolean, ContentWriter)}
      *
      * @param doc
      *         The document to serialize.
@@ -48,9 +91,135 @@ public class Serialization {
      *         When serializing the Document failed because of an IOException
      */
     public static void serializeDocument(final Document doc, final Path file) throws IOException {
-        try (OutputStream output = Files.newOutputStream(file, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
-            Serialization.XML_PRETTY_PRINT.output(doc, output);
+        serializeDocument(doc, file, true);
+    }
+
+    /**
+     * Serializes the given JDOM Document to the given Path, replacing the target only once the document has been
+     * written completely.
+     *
+     * @param doc
+     *         The document to serialize.
+     * @param file
+     *         The path to serialize the document to
+     * @param sync
+     *         Whether the written content is forced to the storage device before it replaces the target
+     *
+     * @return The timings of writing the document
+     *
+     * @throws IOException
+     *         When serializing the Document failed because of an IOException
+     */
+    public static WriteTiming serializeDocument(final Document doc, final Path file, final boolean sync) throws IOException {
+        return writeAtomically(file, sync, output -> XML_PRETTY_PRINT.output(doc, output));
+    }
+
+    /**
+     * Writes a file without ever leaving it partially written. The content is written through a buffer into a
+     * uniquely named temporary file in the same folder, optionally synced and then moved over the target. When
+     * syncing, the folder is synced after the move as well, so the new directory entry survives a crash, as far as
+     * the platform allows to sync folders. If writing fails at any point, the target is left untouched and the
+     * temporary file is removed.
+     *
+     * @param file
+     *         The path of the file to write
+     * @param sync
+     *         Whether the written content is forced to the storage device before it replaces the target
+     * @param content
+     *         Produces the content of the file
+     *
+     * @return The timings of the phases of writing the file
+     *
+     * @throws IOException
+     *         When writing, syncing or moving the file failed
+     */
+    public static WriteTiming writeAtomically(final Path file, final boolean sync, final ContentWriter content) throws IOException {
+        final Path target = file.toAbsolutePath();
+        final Path folder = target.getParent();
+        final long start = System.nanoTime();
+        // unique, so concurrent writers of the same file never share a temporary file
+        final Path temp = Files.createTempFile(folder, "." + target.getFileName(), TEMP_FILE_SUFFIX);
+        long written;
+        long syncStart;
+        long renameStart;
+        try {
+            copyPermissions(target, temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CountingOutputStream output = new CountingOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE));
+                content.writeTo(output);
+                output.flush();
+                written = output.count;
+                syncStart = System.nanoTime();
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            renameStart = System.nanoTime();
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (sync) {
+                syncFolder(folder);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        final long end = System.nanoTime();
+        return new WriteTiming(target, written, syncStart - start, renameStart - syncStart, end - renameStart);
+    }
+
+    /**
+     * Gives the temporary file the permissions of the file it replaces, on platforms with POSIX permissions.
+     */
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+        try {
+            Files.setPosixFilePermissions(temp, Files.exists(target)
+                    ? Files.getPosixFilePermissions(target)
+                    : NEW_FILE_PERMISSIONS);
+        } catch (UnsupportedOperationException e) {
+            // no POSIX permissions, the temporary file is created just like any other file
+        }
+    }
+
+    /**
+     * Forces the entries of a folder to the storage device. Not every platform can open a folder for that, e.g.
+     * Windows does not, where the move is left to the file system.
+     */
+    private static void syncFolder(Path folder) {
+        try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // folders cannot be synced on this platform
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // the channel is owned by the caller
         }
     }
 }
@@ -0,0 +1,196 @@
+package de.vogel612.helper.data.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A persistent cache of parsed resx files. For every file a snapshot of its keys and values is stored in a compact
+ * binary format, together with the size and modification time of the file (and optionally a hash of its content).
+ * A snapshot is only returned as long as the file still matches those, otherwise the file has to be parsed again.
+ */
+public final class SnapshotCache {
+
+    private static final int MAGIC = 0x54485343; // "THSC"
+    private static final int VERSION = 1;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final boolean verifyContent;
+
+    /**
+     * Creates a cache storing its snapshots in the given directory.
+     *
+     * @param directory
+     *         The directory to store snapshots in. Created if it does not exist
+     * @param verifyContent
+     *         Whether a hash of the content of a file is compared in addition to its size and modification time. This
+     *         detects changes that keep both, at the cost of reading the file
+     */
+    public SnapshotCache(Path directory, boolean verifyContent) {
+        this.directory = directory;
+        this.verifyContent = verifyContent;
+    }
+
+    /**
+     * Identifies the state of a file on disk at a given point in time.
+     */
+    public static final class Stamp {
+        private final long size;
+        private final long modified;
+        private final byte[] hash;
+
+        private Stamp(long size, long modified, byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        private boolean matches(long size, long modified, byte[] hash) {
+            return this.size == size && this.modified == modified && Arrays.equals(this.hash, hash);
+        }
+    }
+
+    /**
+     * Determines the current state of the given file. To avoid caching content newer than the stamp, the stamp must be
+     * taken <b>before</b> the file is parsed.
+     *
+     * @param file
+     *         The file to stamp
+     *
+     * @return The current stamp of the file
+     *
+     * @throws IOException
+     *         In case the attributes or the content of the file could not be read
+     */
+    public Stamp stamp(Path file) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final byte[] hash = verifyContent ? hash(Files.readAllBytes(file)) : new byte[0];
+        return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis(), hash);
+    }
+
+    /**
+     * Reads the snapshot of the given file, if there is one for the given state of the file.
+     *
+     * @param file
+     *         The file to get the snapshot of
+     * @param stamp
+     *         The current stamp of the file
+     *
+     * @return The keys and values of the file, or <tt>null</tt> if there is no up to date snapshot
+     */
+    public Map<String, String> read(Path file, Stamp stamp) {
+        final Path snapshot = snapshotFile(file);
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                    || !file.toAbsolutePath().normalize().toString().equals(readString(input))) {
+                return null;
+            }
+            final long size = input.readLong();
+            final long modified = input.readLong();
+            final byte[] hash = new byte[input.readInt()];
+            input.readFully(hash);
+            if (!stamp.matches(size, modified, hash)) {
+                return null;
+            }
+            final int count = input.readInt();
+            final Map<String, String> entries = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                entries.put(readString(input), readString(input));
+            }
+            return entries;
+        } catch (IOException e) {
+            // a broken snapshot is as good as none
+            return null;
+        }
+    }
+
+    /**
+     * Stores a snapshot of the given file. Failing to do so is not an error, the file will just be parsed again.
+     *
+     * @param file
+     *         The file the entries belong to
+     * @param stamp
+     *         The stamp of the file taken before it was parsed
+     * @param entries
+     *         The keys and values parsed from the file
+     */
+    public void write(Path file, Stamp stamp, Map<String, String> entries) {
+        try {
+            Files.createDirectories(directory);
+            Serialization.writeAtomically(snapshotFile(file), false, output -> {
+                DataOutputStream data = new DataOutputStream(output);
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                writeString(data, file.toAbsolutePath().normalize().toString());
+                data.writeLong(stamp.size);
+                data.writeLong(stamp.modified);
+                data.writeInt(stamp.hash.length);
+                data.write(stamp.hash);
+                data.writeInt(entries.size());
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    writeString(data, entry.getKey());
+                    writeString(data, entry.getValue());
+                }
+                data.flush();
+            });
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private Path snapshotFile(Path file) {
+        return directory.resolve(fileNameOf(file) + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * @return A name derived from the absolute path of the given file, to store data about the file under
+     */
+    static String fileNameOf(Path file) {
+        final byte[] pathHash = hash(file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            name.append(String.format("%02x", pathHash[i]));
+        }
+        return name.toString();
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported", e);
+        }
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
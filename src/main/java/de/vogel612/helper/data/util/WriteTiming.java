@@ -0,0 +1,79 @@
+package de.vogel612.helper.data.util;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable record of how long the phases of writing a single file took. Obtained from
+ * {@link Serialization#writeAtomically(Path, boolean, Serialization.ContentWriter)}.
+ */
+public final class WriteTiming {
+
+    private final Path file;
+    private final long bytes;
+    private final long writeNanos;
+    private final long syncNanos;
+    private final long renameNanos;
+
+    WriteTiming(Path file, long bytes, long writeNanos, long syncNanos, long renameNanos) {
+        this.file = file;
+        this.bytes = bytes;
+        this.writeNanos = writeNanos;
+        this.syncNanos = syncNanos;
+        this.renameNanos = renameNanos;
+    }
+
+    /**
+     * @return The file that was written
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return The number of bytes written
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The time spent producing and writing the content into the temporary file, in nanoseconds
+     */
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    /**
+     * @return The time spent forcing the temporary file to the storage device, in nanoseconds. 0 if no sync was
+     * requested
+     */
+    public long getSyncNanos() {
+        return syncNanos;
+    }
+
+    /**
+     * @return The time spent moving the temporary file over the target, in nanoseconds
+     */
+    public long getRenameNanos() {
+        return renameNanos;
+    }
+
+    /**
+     * @return The time spent on all phases together, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return writeNanos + syncNanos + renameNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteTiming{" +
+                "file=" + file +
+                ", bytes=" + bytes +
+                ", write=" + TimeUnit.NANOSECONDS.toMillis(writeNanos) + "ms" +
+                ", sync=" + TimeUnit.NANOSECONDS.toMillis(syncNanos) + "ms" +
+                ", rename=" + TimeUnit.NANOSECONDS.toMillis(renameNanos) + "ms" +
+                '}';
+    }
+}
@@ -3,6 +3,7 @@ package de.vogel612.helper.ui.jfx;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.StageStyle;
@@ -23,6 +24,7 @@ public class JFXDialog {
 
     private static final ButtonType IGNORE = new ButtonType("Ignore", ButtonBar.ButtonData.RIGHT);
     private static final FileChooser fileChooser = new FileChooser();
+    private static final DirectoryChooser directoryChooser = new DirectoryChooser();
 
     private JFXDialog() {
         // fuck it we'll do singleton now...
@@ -36,6 +38,12 @@ public class JFXDialog {
         return result == null ?  null : result.toPath();
     }
 
+    public Path chooseDirectory(final String title) {
+        directoryChooser.setTitle(title);
+        File result = directoryChooser.showDialog(null);
+        return result == null ? null : result.toPath();
+    }
+
     private Dialog<ButtonType> createBasicDialog(final String title, final String message) {
         Dialog<ButtonType> d = new Dialog<>();
         d.setTitle(title);
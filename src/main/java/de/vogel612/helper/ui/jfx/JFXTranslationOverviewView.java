@@ -1,10 +1,14 @@
 package de.vogel612.helper.ui.jfx;
 
 
+import de.vogel612.helper.data.ExternalChangeEvent;
 import de.vogel612.helper.data.FilesetModel;
+import de.vogel612.helper.data.NotableData;
 import de.vogel612.helper.data.ResourceSet;
 import de.vogel612.helper.data.Side;
 import de.vogel612.helper.data.Translation;
+import de.vogel612.helper.data.TranslationChangeEvent;
+import de.vogel612.helper.data.ValidationReport;
 import de.vogel612.helper.ui.LocaleChooser;
 import de.vogel612.helper.ui.OverviewView;
 import de.vogel612.helper.ui.TranslationView;
@@ -18,15 +22,24 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static de.vogel612.helper.data.util.DataUtilities.FALLBACK_LOCALE;
 import static de.vogel612.helper.ui.jfx.JFXDialog.DIALOG;
 import static de.vogel612.helper.ui.jfx.JFXLocaleChooserView.*;
 
 public class JFXTranslationOverviewView implements OverviewView {
+    private static final String SAVE_SUCCESS = "Saving your changes to all resx files completed successfully";
+
     private final Set<Runnable> windowCloseListeners = new HashSet<>();
 
-    private final Map<Side, String> chosenLocale = new EnumMap<>(Side.class);
+    /**
+     * The displayed locales, replaced as a whole on the FX thread. Translation changes and parse completions are
+     * handled on background threads, which only ever see a complete choice.
+     */
+    private volatile Map<Side, String> chosenLocale = Collections.emptyMap();
     private final LocaleChooser localeChooser;
     private final FilesetModel model;
     private final TranslationView translationView;
@@ -35,6 +48,14 @@ public class JFXTranslationOverviewView implements OverviewView {
     private final Scene ui;
     private final Stage stage;
     private final Set<Runnable> fileRequestListeners = new HashSet<>();
+    /**
+     * Validates the fileset after saving, which may parse all deferred locales, so it must not block the FX thread.
+     */
+    private final ExecutorService validator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Fileset-Validator");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public JFXTranslationOverviewView(LocaleChooser localeChooser, FilesetModel model, TranslationView translationView, Stage stage, URL fxml) throws IOException {
         this.localeChooser = localeChooser;
@@ -48,6 +69,9 @@ public class JFXTranslationOverviewView implements OverviewView {
         this.translationView.addTranslationAbortListener(this::onTranslationAbort);
         this.localeChooser.addCompletionListener(this::fileChoiceCompletion);
         this.model.addParseCompletionListener(this::onParseCompletion);
+        this.model.addParseFailureListener(this::onParseFailure);
+        this.model.addExternalChangeListener(this::onExternalChange);
+        this.model.addTranslationChangeListener(this::onTranslationChange);
 
         FXMLLoader loader = new FXMLLoader(fxml);
         ui = new Scene(loader.load());
@@ -72,7 +96,8 @@ public class JFXTranslationOverviewView implements OverviewView {
             DIALOG.warn("Unsaved Changes",
                     "You have unsaved changes. Do you wish to save them before changing the resx-fileset?",
                     () -> {
-                        this.onSaveRequest();
+                        // the fileset is left right away, so validating it is pointless
+                        this.save(false);
                         fileRequestListeners.forEach(Runnable::run);
                     },
                     () -> fileRequestListeners.forEach(Runnable::run)
@@ -86,6 +111,47 @@ public class JFXTranslationOverviewView implements OverviewView {
         rebuild();
     }
 
+    public void onParseFailure(final Path file, final Throwable reason) {
+        reason.printStackTrace(System.err);
+        Platform.runLater(() -> DIALOG.info("Could not load locale",
+                String.format("%s could not be parsed and is left out: %s", file.getFileName(), reason.getMessage())));
+    }
+
+    public void onExternalChange(final ExternalChangeEvent event) {
+        if (!event.getConflictingKeys().isEmpty()) {
+            Platform.runLater(() -> DIALOG.info("Conflicting changes",
+                    String.format("The locale %s was changed on disk. Your unsaved changes to %s were kept and will overwrite those changes when saving.",
+                            event.getLocale(), String.join(", ", event.getConflictingKeys()))));
+        }
+    }
+
+    public void onTranslationChange(final TranslationChangeEvent event) {
+        if (event.getCause() == TranslationChangeEvent.Cause.LOAD) {
+            // taken care of by the parse completion
+            return;
+        }
+        final Map<Side, String> chosen = chosenLocale;
+        final String left = chosen.getOrDefault(Side.LEFT, FALLBACK_LOCALE);
+        final String right = chosen.getOrDefault(Side.RIGHT, FALLBACK_LOCALE);
+        final List<TranslationChangeEvent.Change> visible = new ArrayList<>();
+        for (TranslationChangeEvent.Change change : event.getChanges()) {
+            if (change.getLocale().equals(left) || change.getLocale().equals(right)) {
+                visible.add(change);
+            }
+        }
+        if (event.isStructural()) {
+            // rows were added or dropped, patching them one by one would not remove any
+            if (!visible.isEmpty() || event.getChanges().isEmpty()) {
+                rebuild();
+            }
+            return;
+        }
+        if (!visible.isEmpty()) {
+            Platform.runLater(() -> visible.forEach(change ->
+                    controller.updateTranslation(change.getLocale(), change.getKey(), change.getNewValue())));
+        }
+    }
+
     public void onTranslationAbort() {
         translationView.hide();
         show();
@@ -94,44 +160,74 @@ public class JFXTranslationOverviewView implements OverviewView {
     public void onTranslationSubmit(final Translation t) {
         translationView.hide();
         model.updateTranslation(t.getLocale(), t.getKey(), t.getValue());
-        rebuild();
+        show();
     }
 
     public void onTranslateRequest(final String key) {
+        final Map<Side, String> chosen = chosenLocale;
         translationView.setRequestedTranslation(
-                model.getSingleTranslation(chosenLocale.getOrDefault(Side.LEFT, FALLBACK_LOCALE), key),
-                model.getSingleTranslation(chosenLocale.getOrDefault(Side.RIGHT, FALLBACK_LOCALE), key)
+                model.getSingleTranslation(chosen.getOrDefault(Side.LEFT, FALLBACK_LOCALE), key),
+                model.getSingleTranslation(chosen.getOrDefault(Side.RIGHT, FALLBACK_LOCALE), key)
         );
         translationView.show();
     }
 
     public void onSaveRequest() {
+        save(true);
+    }
+
+    /**
+     * Saves all changes. When validating, the fileset is validated in the background afterwards and the success
+     * dialog is only shown with the result of the validation.
+     */
+    private void save(boolean validate) {
         try {
             model.saveAll();
-            Platform.runLater(() ->
-                    DIALOG.info("Save success!", "Saving your changes to all resx files completed successfully"));
         } catch (IOException e) {
             e.printStackTrace(System.err);
             // FIXME onException(e, "Could not save File");
+            return;
+        }
+        if (!validate) {
+            Platform.runLater(() -> DIALOG.info("Save success!", SAVE_SUCCESS));
+            return;
         }
+        validator.execute(() -> {
+            final ValidationReport validation = model.validate();
+            final int errors = validation.getCount(NotableData.Notability.ERROR);
+            final String summary = errors == 0
+                    ? ""
+                    : String.format("%n%d translations have mismatching format specifiers in %s", errors,
+                    String.join(", ", validation.getLocales().stream()
+                            .filter(locale -> validation.getCount(locale, NotableData.Notability.ERROR) > 0)
+                            .collect(Collectors.toList())));
+            Platform.runLater(() -> DIALOG.info("Save success!", SAVE_SUCCESS + summary));
+        });
     }
 
     private void onWindowCloseRequest() {
         if (model.isDirty()) {
             DIALOG.warn("Unsaved Changes", "You have unsaved changes. Do you wish to save before exiting?",
                     () -> {
-                        this.onSaveRequest();
-                        System.exit(0);
+                        this.save(false);
+                        exit();
                     }, () -> {
-                        System.exit(0); // wonder why stuff still blows up?
+                        model.discardJournal();
+                        exit(); // wonder why stuff still blows up?
                     }
             );
         } else {
-            System.exit(0);
+            exit();
         }
         // FIXME allow preventing to close
     }
 
+    private void exit() {
+        validator.shutdownNow();
+        model.shutdown();
+        System.exit(0);
+    }
+
 
     @Override
     public void show() {
@@ -154,15 +250,19 @@ public class JFXTranslationOverviewView implements OverviewView {
     private void fileChoiceCompletion(LocaleChoiceEvent evt) {
         localeChooser.hide();
 
-        chosenLocale.put(Side.LEFT, evt.getLeftLocale());
-        chosenLocale.put(Side.RIGHT, evt.getRightLocale());
+        final Map<Side, String> chosen = new EnumMap<>(Side.class);
+        chosen.put(Side.LEFT, evt.getLeftLocale());
+        chosen.put(Side.RIGHT, evt.getRightLocale());
+        chosenLocale = Collections.unmodifiableMap(chosen);
+        model.setDisplayedLocales(chosen.values());
         rebuild();
     }
 
     @Override
     public void rebuild() {
-        List<Translation> left = model.getTranslations(chosenLocale.getOrDefault(Side.LEFT, FALLBACK_LOCALE));
-        List<Translation> right = model.getTranslations(chosenLocale.getOrDefault(Side.RIGHT, FALLBACK_LOCALE));
+        final Map<Side, String> chosen = chosenLocale;
+        List<Translation> left = model.getTranslations(chosen.getOrDefault(Side.LEFT, FALLBACK_LOCALE));
+        List<Translation> right = model.getTranslations(chosen.getOrDefault(Side.RIGHT, FALLBACK_LOCALE));
         Platform.runLater(() -> {
             controller.rebuildWith(left, right);
             show();
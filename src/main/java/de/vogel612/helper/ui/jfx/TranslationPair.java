@@ -1,5 +1,7 @@
 package de.vogel612.helper.ui.jfx;
 
+import de.vogel612.helper.data.NotableData;
+import de.vogel612.helper.data.NotableData.Notability;
 import de.vogel612.helper.data.Translation;
 
 import javafx.beans.value.ObservableValueBase;
@@ -12,6 +14,10 @@ public class TranslationPair extends ObservableValueBase<Pair<Translation, Trans
 
     private final Translation left;
     private final Translation right;
+    /**
+     * Assessed on first use. Pairs are replaced whenever one of their translations changes, so it stays valid.
+     */
+    private Notability notability;
 
     public TranslationPair(Translation left, Translation right) {
         this.left = left;
@@ -30,4 +36,17 @@ public class TranslationPair extends ObservableValueBase<Pair<Translation, Trans
     public Translation getRight() {
         return right;
     }
+
+    /**
+     * Returns how notable this pair of translations is. It is only assessed once, so that rendering the pair again does
+     * not scan the translations again.
+     *
+     * @return The notability of this pair
+     */
+    public Notability getNotability() {
+        if (notability == null) {
+            notability = NotableData.assessNotability(left, right);
+        }
+        return notability;
+    }
 }
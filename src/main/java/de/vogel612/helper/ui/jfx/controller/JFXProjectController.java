@@ -3,6 +3,7 @@ package de.vogel612.helper.ui.jfx.controller;
 import de.vogel612.helper.data.Project;
 import de.vogel612.helper.data.ResourceSet;
 import de.vogel612.helper.data.util.ProjectSerializer;
+import de.vogel612.helper.data.util.ResourceSetDiscovery;
 import javafx.application.Platform;
 import javafx.beans.value.ObservableValueBase;
 import javafx.collections.FXCollections;
@@ -17,6 +18,8 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static de.vogel612.helper.ui.jfx.JFXDialog.DIALOG;
@@ -36,6 +39,9 @@ public class JFXProjectController implements Initializable {
     @FXML
     private Button chooser;
 
+    @FXML
+    private Button discover;
+
     @FXML
     private TableView<ResourceSet> table;
 
@@ -44,6 +50,8 @@ public class JFXProjectController implements Initializable {
 
     private Project project;
     private Path projectFilePath;
+    private ResourceSetDiscovery runningDiscovery;
+    private String discoverText;
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
@@ -51,6 +59,7 @@ public class JFXProjectController implements Initializable {
         Objects.requireNonNull(chooser, "chooser was not injected correctly");
         Objects.requireNonNull(table, "table was not injected correctly");
         Objects.requireNonNull(name, "name was not injeted correctly");
+        Objects.requireNonNull(discover, "discover was not injected correctly");
 
         table.getColumns().clear();
         table.getColumns().add(createTableColumn());
@@ -70,6 +79,60 @@ public class JFXProjectController implements Initializable {
         });
 
         chooser.setOnAction(evt -> fileChoiceRequestListeners.forEach(Platform::runLater));
+
+        discoverText = discover.getText();
+        discover.setOnAction(evt -> {
+            if (runningDiscovery != null) {
+                runningDiscovery.cancel();
+                return;
+            }
+            final Path root = DIALOG.chooseDirectory("Choose the folder to search for resource sets");
+            if (root == null || project == null) {
+                return;
+            }
+            discoverResourceSets(root);
+        });
+    }
+
+    private void discoverResourceSets(final Path root) {
+        final ResourceSetDiscovery discovery = new ResourceSetDiscovery(root);
+        // only queue a single progress update at a time, the fx thread would drown in them otherwise
+        final AtomicBoolean updatePending = new AtomicBoolean(false);
+        discovery.addProgressListener(folder -> {
+            if (updatePending.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    updatePending.set(false);
+                    discover.setText(String.format("Cancel (%d folders, %d sets)",
+                            discovery.getScannedFolders(), discovery.getDiscoveredSets()));
+                });
+            }
+        });
+        runningDiscovery = discovery;
+        discover.setText("Cancel");
+
+        final Thread worker = new Thread(() -> {
+            try {
+                final List<ResourceSet> found = discovery.discover();
+                Platform.runLater(() -> {
+                    project.associateAll(found);
+                    table.setItems(FXCollections.observableList(project.getAssociatedResources()));
+                    DIALOG.info("Discovery finished", String.format("Found %d resource sets in %d folders",
+                            found.size(), discovery.getScannedFolders()));
+                });
+            } catch (CancellationException e) {
+                // the user does not want the results anymore
+            } catch (IOException e) {
+                Platform.runLater(() -> DIALOG.info("Error during discovery!",
+                        "Could not search " + root + " due to following exception: " + e.getMessage()));
+            } finally {
+                Platform.runLater(() -> {
+                    runningDiscovery = null;
+                    discover.setText(discoverText);
+                });
+            }
+        }, "ResourceSet-Discovery");
+        worker.setDaemon(true);
+        worker.start();
     }
 
     private TableColumn<ResourceSet, Button> createActionColumn() {
@@ -54,6 +54,50 @@ public class JFXTranslationOverviewController implements Initializable {
         table.getColumns().get(1).setText(right.get(0).getLocale());
     }
 
+    /**
+     * Replaces a single translation in the displayed rows, without touching any other row. Rows are expected to be
+     * ordered by their key, as they are when built from a fileset.
+     *
+     * @param locale
+     *         The locale of the changed translation
+     * @param key
+     *         The key of the changed translation
+     * @param value
+     *         The new value of the translation
+     */
+    public void updateTranslation(String locale, String key, String value) {
+        final ObservableList<TranslationPair> items = table.getItems();
+        final int row = rowOf(items, key);
+        if (row < 0) {
+            return;
+        }
+        final TranslationPair pair = items.get(row);
+        final Translation left = pair.getLeft().getLocale().equals(locale)
+                ? new Translation(locale, key, value)
+                : pair.getLeft();
+        final Translation right = pair.getRight().getLocale().equals(locale)
+                ? new Translation(locale, key, value)
+                : pair.getRight();
+        items.set(row, new TranslationPair(left, right));
+    }
+
+    private static int rowOf(List<TranslationPair> items, String key) {
+        int low = 0;
+        int high = items.size() - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = items.get(middle).getLeft().getKey().compareTo(key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
     private static ObservableList<TranslationPair> buildObservableList(List<Translation> left,
                                                                        List<Translation> right) {
         List<TranslationPair> result = new ArrayList<>();
@@ -107,22 +151,12 @@ public class JFXTranslationOverviewController implements Initializable {
                 }
 
                 private void assignHighlightClasses(TranslationPair rowValue) {
-                    getStyleClass().remove("default");
-                    getStyleClass().remove("warn");
-                    getStyleClass().remove("error");
-
-                    switch (NotableData.assessNotability(rowValue)) {
-                        case INFO:
-                        case DEFAULT:
-                            getStyleClass().add("default");
-                            break;
-                        case WARNING:
-                            getStyleClass().add("warn");
-                            break;
-                        case ERROR:
-                            getStyleClass().add("error");
-                            break;
+                    final String highlight = highlightClass(rowValue.getNotability());
+                    if (getStyleClass().contains(highlight)) {
+                        return;
                     }
+                    getStyleClass().removeAll("default", "warn", "error");
+                    getStyleClass().add(highlight);
                 }
             };
             cell.addEventFilter(MouseEvent.MOUSE_CLICKED, evt -> {
@@ -136,6 +170,17 @@ public class JFXTranslationOverviewController implements Initializable {
         };
     }
 
+    private static String highlightClass(NotableData.Notability notability) {
+        switch (notability) {
+            case WARNING:
+                return "warn";
+            case ERROR:
+                return "error";
+            default:
+                return "default";
+        }
+    }
+
     private static String selectedKey(final TableView<TranslationPair> table) {
         return table.getSelectionModel().getSelectedItem().getRight().getKey();
     }
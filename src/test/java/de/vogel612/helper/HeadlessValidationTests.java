@@ -0,0 +1,99 @@
+package de.vogel612.helper;
+
+import de.vogel612.helper.data.Project;
+import de.vogel612.helper.data.ResourceSet;
+import de.vogel612.helper.data.util.ProjectSerializer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class HeadlessValidationTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private Path project;
+
+    @Before
+    public void setup() throws IOException {
+        final Path folder = temp.newFolder("resources").toPath();
+        writeResx(folder.resolve("Set.resx"), "Greeting", "Hello {0}", "Title", "Translation Helper");
+        writeResx(folder.resolve("Set.de.resx"), "Greeting", "Hallo", "Title", "Übersetzungshelfer");
+        writeResx(folder.resolve("Set.fr.resx"), "Greeting", "Bonjour {0}");
+        project = temp.getRoot().toPath().resolve("project.thp");
+        ProjectSerializer.serialize(new Project("Test", Collections.singletonList(
+                new ResourceSet("Set", folder, new HashSet<>(Arrays.asList("de", "fr"))))), project);
+    }
+
+    private static void writeResx(Path file, String... entries) throws IOException {
+        final StringBuilder content = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<root>\n");
+        for (int i = 0; i < entries.length; i += 2) {
+            content.append("  <data name=\"").append(entries[i]).append("\" xml:space=\"preserve\">\n    <value>")
+                    .append(entries[i + 1]).append("</value>\n  </data>\n");
+        }
+        Files.write(file, content.append("</root>\n").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int run(String... args) {
+        return HeadlessValidation.run(args, new PrintStream(out), new PrintStream(err));
+    }
+
+    @Test
+    public void run_reportsFindingsAsJson() {
+        assertEquals(HeadlessValidation.EXIT_FINDINGS, run(project.toString()));
+
+        final String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(report.contains("\"errors\": 1"));
+        assertTrue(report.contains("\"warnings\": 1"));
+        assertTrue(report.contains("\"file\": \"resources/Set.de.resx\", \"locale\": \"de\", \"key\": \"Greeting\", "
+                + "\"severity\": \"error\", \"rules\": [\"FORMAT_SPECIFIERS\"], \"arguments\": [0]}"));
+        // missing in the french file
+        assertTrue(report.contains("\"locale\": \"fr\", \"key\": \"Title\", \"severity\": \"warning\""));
+    }
+
+    @Test
+    public void run_writesSarifToTheOutputFile() throws IOException {
+        final Path output = temp.getRoot().toPath().resolve("report.sarif");
+        assertEquals(HeadlessValidation.EXIT_FINDINGS,
+                run(project.toString(), "--format", "sarif", "--output", output.toString()));
+
+        final String report = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+        assertTrue(report.contains("\"version\": \"2.1.0\""));
+        assertTrue(report.contains("{\"ruleId\": \"FORMAT_SPECIFIERS\", \"level\": \"error\""));
+        assertTrue(report.contains("violates FORMAT_SPECIFIERS, format items differ for {0}\""));
+        assertTrue(report.contains("{\"ruleId\": \"EMPTY_VALUE\", \"level\": \"warning\""));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void run_passesBelowTheFailingSeverity() throws IOException {
+        writeResx(project.resolveSibling("resources").resolve("Set.de.resx"), "Greeting", "Hallo {0}", "Title", "");
+
+        assertEquals(HeadlessValidation.EXIT_CLEAN, run(project.toString()));
+        assertEquals(HeadlessValidation.EXIT_FINDINGS, run(project.toString(), "--fail-on", "warning"));
+    }
+
+    @Test
+    public void run_rejectsWrongArguments() throws IOException {
+        assertEquals(HeadlessValidation.EXIT_FAILURE, run());
+        assertEquals(HeadlessValidation.EXIT_FAILURE, run(project.toString(), "--format", "xml"));
+        assertEquals(HeadlessValidation.EXIT_FAILURE, run(project.toString(), "--output"));
+        assertEquals(HeadlessValidation.EXIT_FAILURE, run(project.resolveSibling("missing.thp").toString()));
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains(HeadlessValidation.USAGE));
+    }
+}
@@ -0,0 +1,53 @@
+package de.vogel612.helper.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class EditHistoryTests {
+
+    private final EditHistory cut = new EditHistory();
+
+    private static TranslationChangeEvent.Change change(String key, String oldValue, String newValue) {
+        return new TranslationChangeEvent.Change("", key, oldValue, newValue);
+    }
+
+    @Test
+    public void groups_areUndoneAndRedoneAsWhole() {
+        cut.record(Arrays.asList(change("A", "1", "2"), change("B", "3", "4")), Long.MAX_VALUE);
+
+        EditHistory.Group group = cut.undo();
+        assertEquals(2, group.size());
+        assertEquals("B", group.getKey(1));
+        assertEquals("3", group.getOldValue(1));
+        assertFalse(cut.canUndo());
+        assertSame(group, cut.redo());
+        assertFalse(cut.canRedo());
+    }
+
+    @Test
+    public void record_dropsRedoableGroups() {
+        cut.record(Collections.singletonList(change("A", "1", "2")), Long.MAX_VALUE);
+        cut.undo();
+
+        cut.record(Collections.singletonList(change("A", "1", "3")), Long.MAX_VALUE);
+
+        assertFalse(cut.canRedo());
+        assertEquals("3", cut.undo().getNewValue(0));
+    }
+
+    @Test
+    public void record_dropsOldestGroupsBeyondLimit() {
+        cut.record(Collections.singletonList(change("A", "1", "2")), Long.MAX_VALUE);
+        final long groupSize = cut.estimateHeapSize();
+
+        cut.record(Collections.singletonList(change("B", "1", "2")), groupSize);
+
+        assertEquals(groupSize, cut.estimateHeapSize());
+        assertEquals("B", cut.undo().getKey(0));
+        assertNull(cut.undo());
+    }
+}
@@ -3,13 +3,35 @@ package de.vogel612.helper.data;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import org.junit.Assume;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.vogel612.helper.data.util.DirectoryIndex;
+import de.vogel612.helper.data.util.EditJournal;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 public class FilesetModelTest {
 
@@ -26,6 +48,9 @@ public class FilesetModelTest {
       new Translation("", "TestKey2", "Another Test Value")
     };
 
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
     private FilesetModel cut;
     private Runnable parseCallback;
 
@@ -65,6 +90,18 @@ public class FilesetModelTest {
         assertArrayEquals(expected2, normalizedTranslations);
     }
 
+    @Test
+    public void loadFromFile_localesShareKeys() throws IOException, URISyntaxException {
+        cut.loadResxFileset(copyTestFileset().resolve("RubberduckUI.resx"));
+
+        Translation[] root = cut.getTranslations("").toArray(new Translation[0]);
+        Translation[] ts = cut.getTranslations("ts").toArray(new Translation[0]);
+        assertEquals(root.length, ts.length);
+        for (int i = 0; i < root.length; i++) {
+            assertSame(root[i].getKey(), ts[i].getKey());
+        }
+    }
+
     @Test
     public void editTranslation_updatesDocument() {
         // abusing the loading test as a setup...
@@ -115,6 +152,14 @@ public class FilesetModelTest {
         verifyNoMoreInteractions(parseCallback);
     }
 
+    @Test
+    public void getSingleTranslation_ofMissingLocale_hasNoValue() {
+        loadFromFile_andSuccessiveGet_returnCorrectInformation();
+
+        assertNull(cut.getSingleTranslation("xx", "TestKey2").getValue());
+        assertNull(cut.getSingleTranslation("", "MissingKey").getValue());
+    }
+
     @Test
     public void isNotSaved_isFalse_afterSaving() {
         // abusing the loading test as setup
@@ -131,4 +176,309 @@ public class FilesetModelTest {
         assertFalse(cut.isDirty());
         verifyNoMoreInteractions(parseCallback);
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void loadFromFile_corruptLocale_isReportedAndSkipped() throws IOException, URISyntaxException {
+        Path folder = copyTestFileset();
+        Files.write(folder.resolve("RubberduckUI.de.resx"), "<root><data name=".getBytes());
+        BiConsumer<Path, Throwable> failureCallback = mock(BiConsumer.class);
+        cut.addParseFailureListener(failureCallback);
+
+        cut.loadResxFileset(folder.resolve("RubberduckUI.resx"));
+
+        verify(failureCallback).accept(eq(folder.resolve("RubberduckUI.de.resx")), any(Throwable.class));
+        verify(parseCallback).run();
+        assertEquals(new HashSet<>(Arrays.asList("", "ts")), cut.getAvailableLocales());
+    }
+
+    @Test
+    public void saveAll_onlyWritesChangedLocales() throws IOException, URISyntaxException {
+        Path folder = copyTestFileset();
+        cut.loadResxFileset(folder.resolve("RubberduckUI.resx"));
+        cut.saveAll();
+        FileTime fallbackModified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(folder.resolve("RubberduckUI.resx"), fallbackModified);
+        assertFalse(cut.isDirty());
+
+        cut.updateTranslation("ts", "TestKey1", "Changed");
+        cut.updateTranslation("", "TestKey2", "Another Test Value");
+
+        assertEquals(Collections.singletonMap("ts", Collections.singleton("TestKey1")), cut.getChangedKeys());
+        cut.saveAll();
+        assertEquals(fallbackModified, Files.getLastModifiedTime(folder.resolve("RubberduckUI.resx")));
+        assertTrue(cut.getChangedKeys().isEmpty());
+    }
+
+    @Test
+    public void changes_areReportedAsTypedEvents() throws IOException, URISyntaxException {
+        List<TranslationChangeEvent> events = new ArrayList<>();
+        cut.addTranslationChangeListener(events::add);
+        cut.loadResxFileset(copyTestFileset().resolve("RubberduckUI.resx"));
+
+        assertEquals(1, events.size());
+        assertEquals(TranslationChangeEvent.Cause.LOAD, events.get(0).getCause());
+        assertTrue(events.get(0).isStructural());
+        assertTrue(events.get(0).getChanges().stream().anyMatch(change -> change.getLocale().equals("ts")
+                && change.getKey().equals("TestKey2") && change.getOldValue() == null
+                && change.getNewValue().equals("Another Test Value")));
+
+        events.clear();
+        cut.updateTranslation("ts", "TestKey1", "Changed");
+        cut.updateTranslation("ts", "TestKey1", "Changed");
+
+        assertEquals(1, events.size());
+        TranslationChangeEvent edit = events.get(0);
+        assertEquals(TranslationChangeEvent.Cause.EDIT, edit.getCause());
+        assertFalse(edit.isStructural());
+        assertEquals("Second Test", edit.getChanges().get(0).getOldValue());
+        assertEquals("Changed", edit.getChanges().get(0).getNewValue());
+    }
+
+    @Test
+    public void reload_neverExposesPartialFileset() throws Exception {
+        Path fallback = copyTestFileset().resolve("RubberduckUI.resx");
+        cut.loadResxFileset(fallback);
+        Set<String> complete = new HashSet<>(cut.getAvailableLocales());
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        List<Set<String>> torn = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (reloading.get()) {
+                Set<String> seen = new HashSet<>(cut.getAvailableLocales());
+                if (!seen.equals(complete)) {
+                    torn.add(seen);
+                }
+                cut.getTranslations("ts");
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 50; i++) {
+            cut.loadResxFileset(fallback);
+        }
+        reloading.set(false);
+        reader.join();
+
+        assertTrue("Readers saw incomplete filesets: " + torn, torn.isEmpty());
+    }
+
+    @Test
+    public void switchingFilesets_keepsUnsavedChangesOfCachedFileset() throws IOException, URISyntaxException {
+        Path folder = copyTestFileset();
+        Files.copy(folder.resolve("RubberduckUI.resx"), folder.resolve("Other.resx"));
+        ResourceSet rubberduck = ResourceSet.create(folder.resolve("RubberduckUI.resx"));
+        ResourceSet other = ResourceSet.create(folder.resolve("Other.resx"));
+
+        cut.loadResxFileset(rubberduck);
+        cut.updateTranslation("ts", "TestKey1", "Unsaved");
+        cut.loadResxFileset(other);
+
+        assertEquals(Collections.singleton(""), cut.getAvailableLocales());
+        assertTrue(cut.isDirty());
+
+        Files.write(folder.resolve("RubberduckUI.resx"), new String(Files.readAllBytes(folder.resolve("RubberduckUI.resx")), "UTF-8")
+                .replace("Another Test Value", "Changed On Disk").getBytes("UTF-8"));
+        Files.setLastModifiedTime(folder.resolve("RubberduckUI.resx"), FileTime.fromMillis(0));
+        cut.loadResxFileset(rubberduck);
+
+        assertEquals("Unsaved", cut.getSingleTranslation("ts", "TestKey1").getValue());
+        assertEquals("Changed On Disk", cut.getSingleTranslation("", "TestKey2").getValue());
+        cut.saveAll();
+        assertFalse(cut.isDirty());
+    }
+
+    @Test
+    public void switchingFilesets_loadsLocalesAddedWhileCached() throws IOException, URISyntaxException {
+        Path folder = copyTestFileset();
+        Files.copy(folder.resolve("RubberduckUI.resx"), folder.resolve("Other.resx"));
+        ResourceSet rubberduck = ResourceSet.create(folder.resolve("RubberduckUI.resx"));
+
+        cut.loadResxFileset(rubberduck);
+        cut.loadResxFileset(ResourceSet.create(folder.resolve("Other.resx")));
+        Files.copy(folder.resolve("RubberduckUI.ts.resx"), folder.resolve("RubberduckUI.de.resx"));
+        cut.loadResxFileset(rubberduck);
+
+        assertEquals(new HashSet<>(Arrays.asList("", "ts", "de")), cut.getAvailableLocales());
+        assertEquals("Second Test", cut.getSingleTranslation("de", "TestKey1").getValue());
+    }
+
+    @Test
+    public void load_reportsNormalizedKeys() throws IOException, URISyntaxException {
+        cut.loadResxFileset(copyTestFileset().resolve("RubberduckUI.resx"));
+
+        NormalizationReport report = cut.getLastNormalization();
+        assertEquals(new HashSet<>(Arrays.asList("", "ts")), report.getLocales());
+        assertEquals(1, report.getAddedKeys("ts"));
+        assertEquals(1, report.getDroppedKeys("ts"));
+        assertEquals(0, report.getAddedKeys(""));
+        assertEquals(1, report.getAddedKeys());
+    }
+
+    @Test
+    public void undo_revertsGroupedEditsAndRedoAppliesThemAgain() throws IOException, URISyntaxException {
+        cut.loadResxFileset(copyTestFileset().resolve("RubberduckUI.resx"));
+        cut.saveAll();
+        Map<String, String> pasted = new LinkedHashMap<>();
+        pasted.put("TestKey1", "Pasted 1");
+        pasted.put("TestKey2", "Pasted 2");
+        cut.updateTranslation("", "TestKey1", "Edited");
+        cut.updateTranslations("", pasted);
+
+        assertTrue(cut.undo());
+        assertEquals("Edited", cut.getSingleTranslation("", "TestKey1").getValue());
+        assertEquals("Another Test Value", cut.getSingleTranslation("", "TestKey2").getValue());
+        assertTrue(cut.undo());
+        assertEquals("TestValue", cut.getSingleTranslation("", "TestKey1").getValue());
+        assertFalse(cut.isDirty());
+        assertFalse(cut.undo());
+
+        assertTrue(cut.redo());
+        assertTrue(cut.redo());
+        assertEquals("Pasted 2", cut.getSingleTranslation("", "TestKey2").getValue());
+        assertFalse(cut.canRedo());
+    }
+
+    @Test
+    public void journaledEdits_areRecoveredUntilSaved() throws IOException, URISyntaxException {
+        Path fallback = copyTestFileset().resolve("RubberduckUI.resx");
+        EditJournal journal = new EditJournal(temp.getRoot().toPath().resolve("journal"));
+        cut.setEditJournal(journal);
+        cut.loadResxFileset(fallback);
+        cut.updateTranslation("ts", "TestKey1", "Unsaved");
+        cut.shutdown();
+
+        FilesetModel recovered = new FilesetModel();
+        recovered.setEditJournal(journal);
+        recovered.loadResxFileset(fallback);
+        assertEquals("Unsaved", recovered.getSingleTranslation("ts", "TestKey1").getValue());
+        assertTrue(recovered.getChangedKeys().get("ts").contains("TestKey1"));
+
+        recovered.saveAll();
+        journal.flush();
+        assertTrue(journal.read(fallback).isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void loadOnDemand_defersLocalesThatAreNotDisplayed() throws IOException, URISyntaxException {
+        Path folder = copyTestFileset();
+        Files.copy(folder.resolve("RubberduckUI.ts.resx"), folder.resolve("RubberduckUI.de.resx"));
+        cut.setLoadOnDemand(true);
+        cut.setDisplayedLocales(Collections.singleton("ts"));
+
+        cut.loadResxFileset(folder.resolve("RubberduckUI.resx"));
+
+        assertEquals(new HashSet<>(Arrays.asList("", "ts", "de")), cut.getAvailableLocales());
+        assertArrayEquals(expected2, cut.getTranslations("ts").toArray(new Translation[0]));
+        Translation[] de = cut.getTranslations("de").toArray(new Translation[0]);
+        assertEquals(expected2.length, de.length);
+        assertEquals("Second Test", de[0].getValue());
+        assertEquals("Another Test Value", de[1].getValue());
+    }
+
+    @Test(timeout = 10000)
+    @SuppressWarnings("unchecked")
+    public void loadOnDemand_switchingFilesetsDuringADeferredParse_reportsNoFailure() throws Exception {
+        Path folder = copyTestFileset();
+        Path de = folder.resolve("RubberduckUI.de.resx");
+        Files.copy(folder.resolve("RubberduckUI.ts.resx"), de);
+        Path other = temp.newFolder("other").toPath();
+        Files.copy(folder.resolve("RubberduckUI.resx"), other.resolve("RubberduckUI.resx"));
+        FileTime listed = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+        Files.setLastModifiedTime(folder, listed);
+        DirectoryIndex.of(folder);
+        // the index outlives replacing the file with a pipe, which keeps the parse running until the pipe is closed
+        Files.delete(de);
+        Assume.assumeTrue(new ProcessBuilder("mkfifo", de.toString()).start().waitFor() == 0);
+        Files.setLastModifiedTime(folder, listed);
+        BiConsumer<Path, Throwable> failureCallback = mock(BiConsumer.class);
+        // a second thread, so loading the other fileset does not wait for the blocked parse
+        cut = new FilesetModel(2);
+        cut.addParseFailureListener(failureCallback);
+        cut.setLoadOnDemand(true);
+        cut.setDisplayedLocales(Collections.singleton("ts"));
+        cut.loadResxFileset(folder.resolve("RubberduckUI.resx"));
+
+        // opening the pipe waits for the parse to open it
+        try (OutputStream pipe = Files.newOutputStream(de)) {
+            pipe.write("<root><data name=".getBytes("UTF-8"));
+            pipe.flush();
+            cut.loadResxFileset(other.resolve("RubberduckUI.resx"));
+        }
+
+        verify(failureCallback, after(500).never()).accept(any(Path.class), any(Throwable.class));
+        assertEquals(Collections.singleton(""), cut.getAvailableLocales());
+    }
+
+    @Test
+    public void pendingChanges_coalesceRepeatedEditsUntilSaved() throws IOException, URISyntaxException {
+        Path fallback = copyTestFileset().resolve("RubberduckUI.resx");
+        cut.loadResxFileset(fallback);
+        final int normalized = cut.getPendingChangeCount();
+
+        cut.updateTranslation("", "TestKey1", "First");
+        cut.updateTranslation("", "TestKey1", "Second");
+        cut.updateTranslation("", "TestKey1", "Third");
+
+        assertEquals(normalized + 1, cut.getPendingChangeCount());
+        assertTrue(cut.getPendingChangeLag(TimeUnit.NANOSECONDS) > 0);
+
+        cut.saveAll();
+
+        assertEquals(0, cut.getPendingChangeCount());
+        assertEquals(0, cut.getPendingChangeLag(TimeUnit.NANOSECONDS));
+        assertEquals("Third", new ResourceFile(fallback).getTranslation("TestKey1"));
+    }
+
+    @Test
+    public void watching_mergesExternalChangesAndFlagsConflicts() throws Exception {
+        Path folder = copyTestFileset();
+        cut.loadResxFileset(folder.resolve("RubberduckUI.resx"));
+        BlockingQueue<ExternalChangeEvent> events = new LinkedBlockingQueue<>();
+        cut.addExternalChangeListener(events::add);
+        cut.startWatching(Runnable::run);
+        cut.updateTranslation("ts", "TestKey1", "Local Edit");
+
+        Path tsFile = folder.resolve("RubberduckUI.ts.resx");
+        String content = new String(Files.readAllBytes(tsFile), "UTF-8");
+        Files.write(tsFile, content.replace("Second Test", "Remote Edit").getBytes("UTF-8"));
+
+        ExternalChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+        cut.stopWatching();
+        assertNotNull("No external change was reported", event);
+        assertEquals("ts", event.getLocale());
+        assertEquals(Collections.singleton("TestKey1"), event.getConflictingKeys());
+        assertEquals("Local Edit", cut.getSingleTranslation("ts", "TestKey1").getValue());
+    }
+
+    @Test
+    public void watching_recoversJournaledEditsOfLocalesCreatedOnDisk() throws Exception {
+        Path folder = copyTestFileset();
+        Path fallback = folder.resolve("RubberduckUI.resx");
+        EditJournal journal = new EditJournal(temp.getRoot().toPath().resolve("journal"));
+        journal.append(fallback, "de", "TestKey1", "Journaled");
+        journal.flush();
+        cut.setEditJournal(journal);
+        cut.loadResxFileset(fallback);
+        BlockingQueue<ExternalChangeEvent> events = new LinkedBlockingQueue<>();
+        cut.addExternalChangeListener(events::add);
+        cut.startWatching(Runnable::run);
+
+        Files.copy(folder.resolve("RubberduckUI.ts.resx"), folder.resolve("RubberduckUI.de.resx"));
+
+        ExternalChangeEvent event = events.poll(10, TimeUnit.SECONDS);
+        cut.stopWatching();
+        journal.close();
+        assertNotNull("No external change was reported", event);
+        assertEquals("de", event.getLocale());
+        assertEquals("Journaled", cut.getSingleTranslation("de", "TestKey1").getValue());
+        assertTrue(cut.getChangedKeys().get("de").contains("TestKey1"));
+    }
+
+    private Path copyTestFileset() throws IOException, URISyntaxException {
+        Path folder = temp.getRoot().toPath();
+        Files.copy(Paths.get(getClass().getResource("/RubberduckUI.resx").toURI()), folder.resolve("RubberduckUI.resx"));
+        Files.copy(Paths.get(getClass().getResource("/RubberduckUI.ts.resx").toURI()), folder.resolve("RubberduckUI.ts.resx"));
+        return folder;
+    }
 }
@@ -0,0 +1,41 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FilesetValidatorTests {
+
+    private static List<Translation> translations(String locale, int count, Map<Integer, String> overrides) {
+        final List<Translation> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String key = String.format("Key%05d", i);
+            result.add(new Translation(locale, key, overrides.getOrDefault(i, "[" + locale + "] value {0} " + i)));
+        }
+        return result;
+    }
+
+    @Test
+    public void validate_reportsOffendingKeysPerLocaleAndSeverity() {
+        final int count = 10000;
+        final List<Translation> fallback = translations("", count, Collections.singletonMap(42, "no specifier"));
+        final Map<Integer, String> broken = new HashMap<>();
+        broken.put(7, "missing specifier");
+        broken.put(9000, "{1} wrong specifier");
+        broken.put(42, "");
+        final Map<String, List<Translation>> locales = new HashMap<>();
+        locales.put("de", translations("de", count, broken));
+        locales.put("fr", translations("fr", count, Collections.singletonMap(42, "pas de spécificateur")));
+
+        ValidationReport report = new FilesetValidator().validate(fallback, locales);
+
+        assertEquals(new TreeSet<>(Arrays.asList("de", "fr")), report.getLocales());
+        assertEquals(Arrays.asList("Key00007", "Key09000"), report.getKeys("de", Notability.ERROR));
+        assertEquals(Collections.singletonList("Key00042"), report.getKeys("de", Notability.WARNING));
+        assertEquals(0, report.getCount("fr", Notability.ERROR));
+        assertEquals(2, report.getCount(Notability.ERROR));
+    }
+}
@@ -0,0 +1,37 @@
+package de.vogel612.helper.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FormatItemsTests {
+
+    @Test
+    public void haveSameItems_ignoresOrderAndRepetition() {
+        assertTrue(FormatItems.haveSameItems("{0} of {1}", "{1}: {0}, {0}"));
+        assertTrue(FormatItems.haveSameItems("no items", null));
+        assertFalse(FormatItems.haveSameItems("{0} of {1}", "{0}"));
+    }
+
+    @Test
+    public void haveSameItems_skipsEscapedBraces() {
+        assertTrue(FormatItems.haveSameItems("{{0}} is literal", "nothing"));
+        assertTrue(FormatItems.haveSameItems("{{{0}}}", "{0}"));
+        assertFalse(FormatItems.haveSameItems("{{0}}", "{0}"));
+    }
+
+    @Test
+    public void haveSameItems_comparesAlignmentAndFormat() {
+        assertTrue(FormatItems.haveSameItems("{0,-8} {1:N2}", "{1:N2} {0,-8}"));
+        assertFalse(FormatItems.haveSameItems("{0,8}", "{0}"));
+        assertFalse(FormatItems.haveSameItems("{1:N2}", "{1:N3}"));
+        assertTrue(FormatItems.haveSameItems("{64:N2} {64}", "{64} {64:N2}"));
+        assertFalse(FormatItems.haveSameItems("{64}", "{65}"));
+    }
+
+    @Test
+    public void mismatchingArguments_reportsIndicesOfBothSides() {
+        assertArrayEquals(new int[0], FormatItems.mismatchingArguments("{0}", "{0}"));
+        assertArrayEquals(new int[]{1, 2}, FormatItems.mismatchingArguments("{0} {1:N2}", "{0} {1} {2}"));
+    }
+}
@@ -0,0 +1,35 @@
+package de.vogel612.helper.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class KeyTableTests {
+
+    private final KeyTable table = KeyTable.of(Arrays.asList("Delta", "Alpha", "Charlie", "Alpha"));
+
+    @Test
+    public void of_sortsAndDeduplicatesKeys() {
+        assertEquals(3, table.size());
+        assertEquals("Alpha", table.get(0));
+        assertEquals("Charlie", table.get(1));
+        assertEquals("Delta", table.get(2));
+        assertEquals(new HashSet<>(Arrays.asList("Alpha", "Charlie", "Delta")), table.asSet());
+    }
+
+    @Test
+    public void indexOf_returnsOrdinals() {
+        assertEquals(1, table.indexOf("Charlie"));
+        assertEquals(-1, table.indexOf("Bravo"));
+    }
+
+    @Test
+    public void mapTo_mapsOrdinalsOfOtherTable() {
+        KeyTable other = KeyTable.of(Arrays.asList("Alpha", "Bravo", "Delta", "Echo"));
+
+        assertArrayEquals(new int[]{0, -1, 2, -1}, table.mapTo(other));
+    }
+}
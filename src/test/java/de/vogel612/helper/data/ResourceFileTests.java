@@ -1,17 +1,24 @@
 package de.vogel612.helper.data;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 
 /**
@@ -29,6 +36,9 @@ public class ResourceFileTests {
             new Translation("ts", "TestKey4", "Normalized")
     };
 
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
     private ResourceFile cut;
     private final Path canonicalPath;
     private final Path testPath;
@@ -58,6 +68,25 @@ public class ResourceFileTests {
         assertArrayEquals(expected, cut.orderedTranslations().toArray(new Translation[0]));
     }
 
+    @Test
+    public void orderedTranslations_isReusedUntilUpdated() {
+        List<Translation> ordered = cut.orderedTranslations();
+        assertSame(ordered, cut.orderedTranslations());
+
+        cut.updateTranslation("TestKey2", "Updated");
+        List<Translation> updated = cut.orderedTranslations();
+
+        assertNotSame(ordered, updated);
+        assertEquals("Another Test Value", ordered.get(1).getValue());
+        assertEquals("Updated", updated.get(1).getValue());
+        assertSame(ordered.get(0), updated.get(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void orderedTranslations_isReadOnly() {
+        cut.orderedTranslations().remove(0);
+    }
+
     @Test
     public void folderPointsToParent() {
         assertEquals(canonicalPath.getParent(), cut.getFolder());
@@ -87,5 +116,34 @@ public class ResourceFileTests {
         verify(canonicalMock).getTranslation("TestKey4");
         assertArrayEquals(normalized, test.orderedTranslations().toArray(new Translation[0]));
     }
-    // test normalization
+
+    @Test
+    public void saveWritesChangedTranslations() throws IOException {
+        Path copy = temp.getRoot().toPath().resolve(testPath.getFileName());
+        Files.copy(testPath, copy);
+        ResourceFile test = new ResourceFile(copy);
+
+        test.updateTranslation("TestKey1", "Changed");
+        test.updateTranslation("TestKey5", "Added");
+        test.save();
+
+        ResourceFile reread = new ResourceFile(copy);
+        assertEquals("Changed", reread.getTranslation("TestKey1"));
+        assertEquals("Added", reread.getTranslation("TestKey5"));
+        assertEquals("Should be lost", reread.getTranslation("TestKey3"));
+    }
+
+    @Test
+    public void savePreservingFormatting_onlyChangesEditedValue() throws IOException {
+        Path copy = temp.getRoot().toPath().resolve(testPath.getFileName());
+        Files.copy(testPath, copy);
+        ResourceFile test = new ResourceFile(copy);
+
+        test.updateTranslation("TestKey1", "Changed");
+        test.save(SaveMode.PRESERVE_FORMATTING, false);
+
+        String expected = new String(Files.readAllBytes(testPath), "UTF-8")
+                .replace("<value>Second Test</value>", "<value>Changed</value>");
+        assertEquals(expected, new String(Files.readAllBytes(copy), "UTF-8"));
+    }
 }
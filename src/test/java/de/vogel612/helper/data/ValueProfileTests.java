@@ -0,0 +1,60 @@
+package de.vogel612.helper.data;
+
+import de.vogel612.helper.data.NotableData.Notability;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ValueProfileTests {
+
+    @Test
+    public void of_countsWhitespaceAndNewlines() {
+        final ValueProfile profile = ValueProfile.of("  first\nsecond\n ");
+        assertEquals(2, profile.getLeadingWhitespace());
+        assertEquals(2, profile.getTrailingWhitespace());
+        assertEquals(2, profile.getNewlines());
+    }
+
+    @Test
+    public void of_skipsEscapedAmpersandsAndEntities() {
+        assertEquals(1, ValueProfile.of("&Save && close&nbsp;").getAccelerators());
+        assertEquals(0, ValueProfile.of(null).getAccelerators());
+    }
+
+    @Test
+    public void of_tracksTagBalance() {
+        final ValueProfile balanced = ValueProfile.of("<b>bold</b> and <br/>");
+        assertEquals(3, balanced.getTags());
+        assertTrue(balanced.areTagsBalanced());
+        assertFalse(ValueProfile.of("</b>bold<b>").areTagsBalanced());
+        assertEquals(0, ValueProfile.of("a < b > c").getTags());
+    }
+
+    @Test
+    public void of_scansInsideTags() {
+        final ValueProfile profile = ValueProfile.of("<b\nclass=x>a</b>");
+        assertEquals(1, profile.getNewlines());
+        assertEquals(2, profile.getTags());
+        assertTrue(profile.areTagsBalanced());
+    }
+
+    @Test
+    public void assessNotability_comparesFormatItemsInsideAttributes() {
+        assertEquals(Notability.ERROR, NotableData.assessNotability(
+                ValueProfile.of("<Hyperlink NavigateUri=\"{0}\">here</Hyperlink>"),
+                ValueProfile.of("<Hyperlink NavigateUri=\"x\">hier</Hyperlink>")));
+        assertEquals(Notability.DEFAULT, NotableData.assessNotability(
+                ValueProfile.of("<Hyperlink NavigateUri=\"{0}\">here</Hyperlink>"),
+                ValueProfile.of("<Hyperlink NavigateUri=\"{0}\">hier</Hyperlink>")));
+    }
+
+    @Test
+    public void assessNotability_reportsTheMostSevereRule() {
+        assertEquals(Notability.DEFAULT, NotableData.assessNotability(ValueProfile.of("Save &file"),
+                ValueProfile.of("&Datei speichern")));
+        assertEquals(Notability.WARNING, NotableData.assessNotability(ValueProfile.of("Save &file"),
+                ValueProfile.of("Datei speichern")));
+        assertEquals(Notability.ERROR, NotableData.assessNotability(ValueProfile.of("<b>{0}</b>"),
+                ValueProfile.of("<b>{0}")));
+    }
+}
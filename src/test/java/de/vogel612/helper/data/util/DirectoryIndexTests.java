@@ -0,0 +1,68 @@
+package de.vogel612.helper.data.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DirectoryIndexTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void of_groupsFilesByFilesetAndLocale() throws IOException {
+        Path folder = temp.getRoot().toPath();
+        for (String name : Arrays.asList("Set.resx", "Set.de.resx", "Set.de-at.resx", "Other.resx",
+                "Set.designer.resx", "Set.cs", "Nested.de.resx.bak")) {
+            Files.createFile(folder.resolve(name));
+        }
+
+        DirectoryIndex index = DirectoryIndex.of(folder);
+
+        assertEquals(new HashSet<>(Arrays.asList("Set", "Other")), index.getFilesets());
+        assertEquals(Arrays.asList(DataUtilities.FALLBACK_LOCALE, "de", "de-at"),
+                Arrays.asList(index.getFileset("Set").keySet().toArray()));
+        assertEquals(folder.resolve("Set.de.resx"), index.getFileset("Set").get("de"));
+        assertTrue(index.getFileset("Missing").isEmpty());
+    }
+
+    @Test
+    public void of_isReusedUntilFolderChanges() throws IOException {
+        Path folder = temp.getRoot().toPath();
+        Files.createFile(folder.resolve("Set.resx"));
+        Files.setLastModifiedTime(folder, FileTime.from(System.currentTimeMillis() - 60000, TimeUnit.MILLISECONDS));
+
+        DirectoryIndex first = DirectoryIndex.of(folder);
+        assertSame(first, DirectoryIndex.of(folder));
+
+        Files.createFile(folder.resolve("Set.fr.resx"));
+        DirectoryIndex second = DirectoryIndex.of(folder);
+
+        assertNotSame(first, second);
+        assertEquals(folder.resolve("Set.fr.resx"), second.getFileset("Set").get("fr"));
+    }
+
+    @Test
+    public void of_dropsLeastRecentlyUsedIndices() throws IOException {
+        Path folder = temp.newFolder("first").toPath();
+        Files.setLastModifiedTime(folder, FileTime.from(System.currentTimeMillis() - 60000, TimeUnit.MILLISECONDS));
+        DirectoryIndex first = DirectoryIndex.of(folder);
+        assertSame(first, DirectoryIndex.of(folder));
+
+        for (int i = 0; i < DirectoryIndex.MAX_INDICES; i++) {
+            DirectoryIndex.of(temp.newFolder("other" + i).toPath());
+        }
+
+        assertNotSame(first, DirectoryIndex.of(folder));
+    }
+}
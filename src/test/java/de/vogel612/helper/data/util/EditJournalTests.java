@@ -0,0 +1,117 @@
+package de.vogel612.helper.data.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EditJournalTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private Path directory;
+    private Path fileset;
+    private EditJournal cut;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temp.getRoot().toPath().resolve("journal");
+        fileset = temp.getRoot().toPath().resolve("Set.resx");
+        cut = new EditJournal(directory);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        cut.close();
+    }
+
+    @Test
+    public void read_returnsAppendedEditsInOrder() throws IOException {
+        cut.append(fileset, "de", "Key", "Wert mit Ümlaut");
+        cut.append(fileset, "", "Key", null);
+        cut.flush();
+
+        List<EditJournal.Edit> edits = cut.read(fileset);
+        assertEquals(2, edits.size());
+        assertEquals("de", edits.get(0).getLocale());
+        assertEquals("Wert mit Ümlaut", edits.get(0).getValue());
+        assertNull(edits.get(1).getValue());
+        assertTrue(cut.read(temp.getRoot().toPath().resolve("Other.resx")).isEmpty());
+    }
+
+    @Test
+    public void truncate_dropsJournal() throws IOException {
+        cut.append(fileset, "de", "Key", "Wert");
+        cut.truncate(fileset);
+        cut.append(fileset, "de", "Key", "Neuer Wert");
+        cut.flush();
+
+        List<EditJournal.Edit> edits = cut.read(fileset);
+        assertEquals(1, edits.size());
+        assertEquals("Neuer Wert", edits.get(0).getValue());
+    }
+
+    @Test
+    public void read_ignoresTornRecord() throws IOException {
+        cut.append(fileset, "de", "Key", "Wert");
+        cut.append(fileset, "de", "Other", "Anderer Wert");
+        cut.close();
+        try (FileChannel journal = FileChannel.open(
+                Files.list(directory).findFirst().get(), StandardOpenOption.WRITE)) {
+            journal.truncate(journal.size() - 3);
+        }
+
+        List<EditJournal.Edit> edits = cut.read(fileset);
+        assertEquals(1, edits.size());
+        assertEquals("Key", edits.get(0).getKey());
+    }
+
+    @Test
+    public void append_afterTornRecord_isRead() throws IOException {
+        cut.append(fileset, "de", "Key", "Wert");
+        cut.append(fileset, "de", "Other", "Anderer Wert");
+        cut.close();
+        Path journalFile = Files.list(directory).findFirst().get();
+        try (FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            journal.truncate(journal.size() - 5);
+        }
+
+        cut = new EditJournal(directory);
+        cut.append(fileset, "de", "Other", "Neuer Wert");
+        cut.flush();
+
+        List<EditJournal.Edit> edits = cut.read(fileset);
+        assertEquals(2, edits.size());
+        assertEquals("Key", edits.get(0).getKey());
+        assertEquals("Neuer Wert", edits.get(1).getValue());
+    }
+
+    @Test
+    public void append_afterTornHeader_isRead() throws IOException {
+        cut.append(fileset, "de", "Key", "Wert");
+        cut.close();
+        Path journalFile = Files.list(directory).findFirst().get();
+        try (FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            journal.truncate(6);
+        }
+
+        cut = new EditJournal(directory);
+        cut.append(fileset, "de", "Other", "Neuer Wert");
+        cut.flush();
+
+        List<EditJournal.Edit> edits = cut.read(fileset);
+        assertEquals(1, edits.size());
+        assertEquals("Neuer Wert", edits.get(0).getValue());
+    }
+}
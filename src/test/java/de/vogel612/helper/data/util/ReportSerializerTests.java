@@ -0,0 +1,34 @@
+package de.vogel612.helper.data.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class ReportSerializerTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void uriOf_escapesRelativeReferences() {
+        Path base = temp.getRoot().toPath();
+
+        assertEquals("resources/Set.de.resx", ReportSerializer.uriOf(base.resolve("resources/Set.de.resx"), base));
+        assertEquals("My%20Resources/100%25%20%231%3A2.resx",
+                ReportSerializer.uriOf(base.resolve("My Resources/100% #1:2.resx"), base));
+        assertEquals("../Set.resx", ReportSerializer.uriOf(base.resolveSibling("Set.resx"), base));
+    }
+
+    @Test
+    public void uriOf_withoutBase_isAbsoluteFileUri() {
+        Path file = temp.getRoot().toPath().resolve("My Resources/Set.resx");
+
+        assertEquals(file.toUri().toString(), ReportSerializer.uriOf(file, null));
+        assertTrue(ReportSerializer.uriOf(file, null).startsWith("file:/"));
+        assertTrue(ReportSerializer.uriOf(file, null).endsWith("/My%20Resources/Set.resx"));
+    }
+}
@@ -0,0 +1,110 @@
+package de.vogel612.helper.data.util;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResourceFileSerializerTests {
+
+    private static final String RESX = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<root>\n" +
+            "  <resheader name=\"version\"><value>2.0</value></resheader>\n" +
+            "  <data name=\"First\"><value>One &amp; only</value></data>\n" +
+            "  <data name=\"Second\"><value><![CDATA[<b>bold</b>]]></value><comment>ignored</comment></data>\n" +
+            "  <data name=\"Empty\"><value /></data>\n" +
+            "</root>";
+
+    @Test
+    public void deserializeToMap_readsDataEntriesOnly() throws Exception {
+        Map<String, String> result = ResourceFileSerializer.deserializeToMap(new ByteArrayInputStream(RESX.getBytes("UTF-8")));
+
+        assertEquals(3, result.size());
+        assertEquals("One & only", result.get("First"));
+        assertEquals("<b>bold</b>", result.get("Second"));
+        assertEquals("", result.get("Empty"));
+    }
+
+    @Test
+    public void setValue_updatesIndexedAndAppendsMissingElements() throws IOException, JDOMException {
+        Document doc = Serialization.parseBytes(RESX.getBytes("UTF-8"));
+        Map<String, Element> index = ResourceFileSerializer.indexValueElements(doc);
+
+        ResourceFileSerializer.setValue(doc, index, "First", "Changed");
+        ResourceFileSerializer.setValue(doc, index, "Third", "Added");
+
+        assertEquals("Changed", doc.getRootElement().getChildren("data").get(0).getChildText("value"));
+        assertEquals(4, doc.getRootElement().getChildren("data").size());
+        assertEquals("Added", index.get("Third").getText());
+    }
+
+    @Test
+    public void setValues_appendsAllNewEntriesTogether() throws IOException, JDOMException {
+        Document doc = Serialization.parseBytes(RESX.getBytes("UTF-8"));
+        Map<String, Element> index = ResourceFileSerializer.indexValueElements(doc);
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("Added1", "One");
+        values.put("First", "Changed");
+        values.put("Added2", null);
+
+        ResourceFileSerializer.setValues(doc, index, values);
+
+        List<Element> data = doc.getRootElement().getChildren("data");
+        assertEquals(5, data.size());
+        assertEquals("Changed", data.get(0).getChildText("value"));
+        assertEquals("Added1", data.get(3).getAttributeValue("name"));
+        assertEquals("", data.get(4).getChildText("value"));
+        assertSame(data.get(4).getChild("value"), index.get("Added2"));
+    }
+
+    @Test
+    public void patch_replacesOnlyChangedValues() throws Exception {
+        String original = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\r\n" +
+                "<root>\r\n" +
+                "\t<data name=\"Umlaut\"><value>Grüße &amp; mehr</value></data>\r\n" +
+                "\t<data name=\"Empty\"><value/></data>\r\n" +
+                "\t<data name=\"Kept\">   <value>  untouched  </value>   </data>\r\n" +
+                "</root>\r\n";
+        Map<String, String> entries = new HashMap<>();
+        ResxLayout layout = ResourceFileSerializer.deserialize(original.getBytes("UTF-8"), entries);
+        assertNotNull(layout);
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        changes.put("Empty", "now <filled>");
+        changes.put("Umlaut", "Ä");
+        changes.put("New", "added & escaped");
+        String patched = new String(layout.patch(changes), "UTF-8");
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"utf-8\"?>\r\n" +
+                "<root>\r\n" +
+                "\t<data name=\"Umlaut\"><value>Ä</value></data>\r\n" +
+                "\t<data name=\"Empty\"><value>now &lt;filled&gt;</value></data>\r\n" +
+                "\t<data name=\"Kept\">   <value>  untouched  </value>   </data>\r\n" +
+                "\t<data name=\"New\" xml:space=\"preserve\">\r\n" +
+                "\t\t<value>added &amp; escaped</value>\r\n" +
+                "\t</data>\r\n" +
+                "</root>\r\n", patched);
+        Map<String, String> reread = new HashMap<>();
+        ResourceFileSerializer.deserialize(patched.getBytes("UTF-8"), reread);
+        assertEquals("added & escaped", reread.get("New"));
+        assertEquals("  untouched  ", reread.get("Kept"));
+    }
+
+    @Test
+    public void deserialize_entryWithoutValue_cannotBePatched() throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        ResxLayout layout = ResourceFileSerializer.deserialize("<root><data name=\"NoValue\" /></root>".getBytes("UTF-8"), entries);
+
+        assertNull(layout);
+        assertTrue(entries.containsKey("NoValue"));
+    }
+}
@@ -0,0 +1,59 @@
+package de.vogel612.helper.data.util;
+
+import de.vogel612.helper.data.Project;
+import de.vogel612.helper.data.ResourceSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResourceSetDiscoveryTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void discover_findsResourceSetsInAllSubfolders() throws IOException {
+        Path root = temp.getRoot().toPath();
+        Path ui = Files.createDirectories(root.resolve("Project/UI"));
+        Path deep = Files.createDirectories(root.resolve("Project/Inspections/Resources"));
+        Path hidden = Files.createDirectories(root.resolve(".git/Resources"));
+        for (Path file : Arrays.asList(ui.resolve("Strings.resx"), ui.resolve("Strings.de.resx"),
+                ui.resolve("Strings.fr-CA.resx"), deep.resolve("Inspections.resx"), deep.resolve("Orphan.de.resx"),
+                hidden.resolve("Ignored.resx"))) {
+            Files.createFile(file);
+        }
+
+        ResourceSetDiscovery discovery = new ResourceSetDiscovery(root);
+        AtomicInteger progress = new AtomicInteger();
+        discovery.addProgressListener(folder -> progress.incrementAndGet());
+        Project project = discovery.discoverProject("Solution");
+
+        List<ResourceSet> sets = project.getAssociatedResources();
+        assertEquals(Arrays.asList(
+                new ResourceSet("Inspections", deep, Collections.emptySet()),
+                new ResourceSet("Strings", ui, new HashSet<>(Arrays.asList("de", "fr-CA")))), sets);
+        assertEquals(5, discovery.getScannedFolders());
+        assertEquals(5, progress.get());
+        assertEquals(2, discovery.getDiscoveredSets());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void discover_cancelled_throws() throws IOException {
+        ResourceSetDiscovery discovery = new ResourceSetDiscovery(temp.getRoot().toPath());
+        discovery.cancel();
+
+        discovery.discover();
+    }
+}
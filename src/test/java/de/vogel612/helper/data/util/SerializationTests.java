@@ -0,0 +1,73 @@
+package de.vogel612.helper.data.util;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SerializationTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void writeAtomically_replacesTarget() throws IOException {
+        Path target = temp.newFile("target.resx").toPath();
+        Files.write(target, "old".getBytes());
+
+        WriteTiming timing = Serialization.writeAtomically(target, false, out -> out.write("new content".getBytes()));
+
+        assertEquals("new content", new String(Files.readAllBytes(target)));
+        assertEquals(11, timing.getBytes());
+        assertEquals(Collections.singletonList(target.getFileName()), listFolder());
+    }
+
+    @Test
+    public void writeAtomically_failure_leavesTargetUntouched() throws IOException {
+        Path target = temp.newFile("target.resx").toPath();
+        Files.write(target, "old".getBytes());
+
+        try {
+            Serialization.writeAtomically(target, true, out -> {
+                out.write("partial".getBytes());
+                throw new IOException("disk full");
+            });
+            fail("Expected the IOException to be propagated");
+        } catch (IOException expected) {
+            assertEquals("disk full", expected.getMessage());
+        }
+
+        assertEquals("old", new String(Files.readAllBytes(target)));
+        assertEquals(Collections.singletonList(target.getFileName()), listFolder());
+    }
+
+    @Test
+    public void writeAtomically_synced_keepsPermissionsOfTarget() throws IOException {
+        Path target = temp.newFile("target.resx").toPath();
+        Assume.assumeNotNull(Files.getFileAttributeView(target, PosixFileAttributeView.class));
+        Files.setPosixFilePermissions(target, PosixFilePermissions.fromString("rw-rw-r--"));
+        // left behind by a crashed writer
+        Files.write(temp.getRoot().toPath().resolve(".target.resx.tmp"), "stale".getBytes());
+
+        Serialization.writeAtomically(target, true, out -> out.write("new content".getBytes()));
+
+        assertEquals("new content", new String(Files.readAllBytes(target)));
+        assertEquals(PosixFilePermissions.fromString("rw-rw-r--"), Files.getPosixFilePermissions(target));
+        assertEquals(2, listFolder().size());
+    }
+
+    private List<Path> listFolder() throws IOException {
+        return Files.list(temp.getRoot().toPath()).map(Path::getFileName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,63 @@
+package de.vogel612.helper.data.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SnapshotCacheTests {
+
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private Path file;
+    private Map<String, String> entries;
+
+    @Before
+    public void setup() throws IOException {
+        file = temp.newFile("Set.de.resx").toPath();
+        Files.write(file, "<root />".getBytes());
+        entries = new HashMap<>();
+        entries.put("Key", "Wert mit Ümlaut");
+        entries.put("Missing", null);
+    }
+
+    @Test
+    public void read_returnsWrittenSnapshot() throws IOException {
+        SnapshotCache cut = new SnapshotCache(temp.getRoot().toPath().resolve("cache"), false);
+        cut.write(file, cut.stamp(file), entries);
+
+        assertEquals(entries, cut.read(file, cut.stamp(file)));
+    }
+
+    @Test
+    public void read_modifiedFile_isStale() throws IOException {
+        SnapshotCache cut = new SnapshotCache(temp.getRoot().toPath().resolve("cache"), false);
+        cut.write(file, cut.stamp(file), entries);
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+        assertNull(cut.read(file, cut.stamp(file)));
+    }
+
+    @Test
+    public void read_verifyingContent_detectsChangeWithSameSizeAndTime() throws IOException {
+        SnapshotCache cut = new SnapshotCache(temp.getRoot().toPath().resolve("cache"), true);
+        FileTime modified = Files.getLastModifiedTime(file);
+        cut.write(file, cut.stamp(file), entries);
+
+        Files.write(file, "<tree />".getBytes());
+        Files.setLastModifiedTime(file, modified);
+
+        assertNull(cut.read(file, cut.stamp(file)));
+    }
+}
@@ -2,12 +2,14 @@ package de.vogel612.helper.ui.javafx;
 
 import static de.vogel612.helper.data.util.DataUtilities.FALLBACK_LOCALE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 import static org.testfx.api.FxAssert.verifyThat;
 import static org.testfx.matcher.base.NodeMatchers.hasText;
 
 import com.google.common.base.Predicate;
 import de.vogel612.helper.data.FilesetModel;
+import de.vogel612.helper.data.FilesetValidator;
 import de.vogel612.helper.ui.LocaleChooser;
 import de.vogel612.helper.ui.TranslationView;
 import de.vogel612.helper.ui.jfx.JFXDialog;
@@ -15,6 +17,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.testfx.framework.junit.ApplicationTest;
 import de.vogel612.helper.data.Translation;
+import de.vogel612.helper.data.TranslationChangeEvent;
 import de.vogel612.helper.ui.jfx.JFXTranslationOverviewView;
 import de.vogel612.helper.ui.jfx.TranslationPair;
 
@@ -125,21 +128,35 @@ public class JavaFXOverviewViewTests extends ApplicationTest {
     }
 
     @Test
-    public void onTranslationSubmit_hidesTranslationView_propagatesEdit_updatesView() {
+    public void onTranslationSubmit_hidesTranslationView_propagatesEdit() {
         final Translation t = new Translation("de", "Key", "Translation");
-        final List<Translation> list = Collections.singletonList(new Translation("", "", ""));
-        final List<Translation> leftSide = Collections.singletonList(new Translation("", "", ""));
-        doReturn(list).when(filesetModel).getTranslations("de");
-        doReturn(leftSide).when(filesetModel).getTranslations(FALLBACK_LOCALE);
 
         cut.onTranslationSubmit(t);
 
         verify(filesetModel).updateTranslation("de", "Key", "Translation");
-        verify(filesetModel, times(2)).getTranslations(FALLBACK_LOCALE);
         verify(translationView).hide();
         verifyNoMoreInteractions(filesetModel, translationView, localeChooser, dialog);
     }
 
+    @Test
+    public void onTranslationChange_updatesOnlyAffectedRow() {
+        final List<Translation> left = Arrays.asList(new Translation("", "key", "value"), new Translation("", "key2", "value2"));
+        final List<Translation> right = Arrays.asList(new Translation("", "key", "value"), new Translation("", "key2", "value2"));
+        Platform.runLater(() -> cut.rebuildWith(left, right));
+        sleep(200, TimeUnit.MILLISECONDS);
+        TableView<TranslationPair> table = lookup("#table").queryFirst();
+        TranslationPair untouched = table.getItems().get(0);
+
+        cut.onTranslationChange(new TranslationChangeEvent(TranslationChangeEvent.Cause.EDIT, false,
+                Collections.singletonList(new TranslationChangeEvent.Change(FALLBACK_LOCALE, "key2", "value2", "changed"))));
+        sleep(200, TimeUnit.MILLISECONDS);
+
+        assertSame(untouched, table.getItems().get(0));
+        assertEquals("changed", table.getItems().get(1).getLeft().getValue());
+        assertEquals("changed", table.getItems().get(1).getRight().getValue());
+        verifyNoMoreInteractions(filesetModel, translationView, localeChooser, dialog);
+    }
+
     @Test
     public void onTranslationAbort_hidesTranslationView() {
         cut.onTranslationAbort();
@@ -151,6 +168,8 @@ public class JavaFXOverviewViewTests extends ApplicationTest {
     @Test
     public void onSaveRequest_delegatesToModel() {
         doReturn(true).when(filesetModel).isDirty();
+        doReturn(new FilesetValidator().validate(Collections.emptyList(), Collections.emptyMap()))
+                .when(filesetModel).validate();
 
         cut.onSaveRequest();
 
@@ -160,6 +179,7 @@ public class JavaFXOverviewViewTests extends ApplicationTest {
             // shouldn't ever actually happen
             throw new AssertionError("IOException when trying to save", e);
         }
+        verify(filesetModel, timeout(1000)).validate();
         Platform.runLater(() -> verify(dialog).info(any(String.class), any(String.class)));
         sleep(60); // await verification..
         verifyNoMoreInteractions(filesetModel, translationView, localeChooser, dialog);